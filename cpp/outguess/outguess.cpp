@@ -34,11 +34,103 @@ static bool load_jpeg_advanced(const char* path, AdvancedJPEGData* jpeg_data);
 static bool save_jpeg_advanced(const char* path, const AdvancedJPEGData* jpeg_data, int quality);
 static std::vector<uint8_t> encrypt_message_aes(const std::string& message, const std::string& password);
 static std::string decrypt_message_aes(const std::vector<uint8_t>& encrypted_data, const std::string& password);
-static std::vector<int> generate_secure_embedding_sequence(int total_coefficients, const std::string& seed);
-static bool embed_bits_with_resistance(AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& data, int resistance_level);
-static std::vector<uint8_t> extract_bits_with_verification(const AdvancedJPEGData* jpeg_data, int expected_size);
+static std::vector<int> generate_secure_embedding_sequence(int total_coefficients, const std::string& seed, int version);
+static bool embed_bits_with_resistance(AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& data, int resistance_level, int sequence_version);
+static std::vector<uint8_t> extract_bits_with_verification(const AdvancedJPEGData* jpeg_data, int expected_size, int sequence_version);
 static double calculate_image_entropy(const AdvancedJPEGData* jpeg_data);
-static bool verify_embedding_integrity(const AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& original_data);
+static bool verify_embedding_integrity(const AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& original_data, int sequence_version);
+
+// 嵌入序列版本
+static const int SEQUENCE_VERSION_SHUFFLE = 1;
+static const int SEQUENCE_VERSION_FEISTEL = 2;
+static const char* OUTGUESS_SEED = "outguess_seed_v2";
+
+// 版本2嵌入序列：AC序号空间上的带密钥Feistel置换（与Java端 FeistelEmbeddingSequence 逐位一致）
+// 1. 密钥 = seed 字节的64位FNV-1a
+// 2. 域大小 n = AC系数个数，取最小的h使 2^(2h) >= n
+// 3. 4轮平衡Feistel，轮函数 F_i(r) = splitmix64(r ^ round_key_i) 的低h位，
+//    round_key_i = splitmix64(key + i * 0x9E3779B97F4A7C15)
+// 4. 结果 >= n 时继续加密（循环游走），直到落入 [0, n)
+// 5. AC序号 j 映射到系数下标 (j / 63) * 64 + j % 63 + 1
+class FeistelSequence {
+public:
+    FeistelSequence(int total_coefficients, const std::string& seed) {
+        length_ = total_coefficients - (total_coefficients + DCT_BLOCK_SIZE - 1) / DCT_BLOCK_SIZE;
+        half_bits_ = 1;
+        while ((1ULL << (2 * half_bits_)) < (uint64_t)length_) {
+            half_bits_++;
+        }
+        half_mask_ = (1ULL << half_bits_) - 1;
+        
+        uint64_t key = 0xCBF29CE484222325ULL;
+        for (unsigned char c : seed) {
+            key ^= c;
+            key *= 0x100000001B3ULL;
+        }
+        for (int i = 0; i < 4; i++) {
+            round_keys_[i] = mix64(key + (uint64_t)i * 0x9E3779B97F4A7C15ULL);
+        }
+    }
+    
+    int size() const { return length_; }
+    
+    int index_at(int k) const {
+        uint64_t ordinal = (uint64_t)k;
+        do {
+            ordinal = permute(ordinal);
+        } while (ordinal >= (uint64_t)length_);
+        
+        int j = (int)ordinal;
+        return (j / (DCT_BLOCK_SIZE - 1)) * DCT_BLOCK_SIZE + (j % (DCT_BLOCK_SIZE - 1)) + 1;
+    }
+    
+private:
+    static uint64_t mix64(uint64_t z) {
+        z = (z ^ (z >> 30)) * 0xBF58476D1CE4E5B9ULL;
+        z = (z ^ (z >> 27)) * 0x94D049BB133111EBULL;
+        return z ^ (z >> 31);
+    }
+    
+    uint64_t permute(uint64_t x) const {
+        uint64_t left = x >> half_bits_;
+        uint64_t right = x & half_mask_;
+        for (int i = 0; i < 4; i++) {
+            uint64_t next = left ^ (mix64(right ^ round_keys_[i]) & half_mask_);
+            left = right;
+            right = next;
+        }
+        return (left << half_bits_) | right;
+    }
+    
+    int length_;
+    int half_bits_;
+    uint64_t half_mask_;
+    uint64_t round_keys_[4];
+};
+
+// 统一的嵌入序列访问：版本1预先生成洗牌数组，版本2按需计算
+class EmbeddingSequence {
+public:
+    EmbeddingSequence(int total_coefficients, const std::string& seed, int version)
+        : feistel_(total_coefficients, seed), lazy_(version == SEQUENCE_VERSION_FEISTEL) {
+        if (!lazy_) {
+            shuffled_ = generate_secure_embedding_sequence(total_coefficients, seed, SEQUENCE_VERSION_SHUFFLE);
+        }
+    }
+    
+    int size() const { return lazy_ ? feistel_.size() : (int)shuffled_.size(); }
+    int at(int k) const { return lazy_ ? feistel_.index_at(k) : shuffled_[k]; }
+    
+private:
+    FeistelSequence feistel_;
+    bool lazy_;
+    std::vector<int> shuffled_;
+};
+
+static int sequence_version_of(const outguess_config_t* config) {
+    return (config && config->sequence_version == SEQUENCE_VERSION_FEISTEL)
+        ? SEQUENCE_VERSION_FEISTEL : SEQUENCE_VERSION_SHUFFLE;
+}
 
 // CRC32校验表
 static const uint32_t crc32_table[256] = {
@@ -127,14 +219,15 @@ outguess_embed_result_t* outguess_embed_message(
         
         // 使用高级抗压缩算法嵌入数据
         int resistance_level = config ? config->compression_resistance : 5;
-        if (!embed_bits_with_resistance(&jpeg_data, full_data, resistance_level)) {
+        int sequence_version = sequence_version_of(config);
+        if (!embed_bits_with_resistance(&jpeg_data, full_data, resistance_level, sequence_version)) {
             result->error_code = OUTGUESS_ERROR_COMPRESSION_FAILED;
             result->error_message = strdup("Failed to embed message with required resistance");
             return result;
         }
         
         // 验证嵌入完整性
-        if (!verify_embedding_integrity(&jpeg_data, full_data)) {
+        if (!verify_embedding_integrity(&jpeg_data, full_data, sequence_version)) {
             result->error_code = OUTGUESS_ERROR_COMPRESSION_FAILED;
             result->error_message = strdup("Embedding integrity verification failed");
             return result;
@@ -190,7 +283,8 @@ outguess_extract_result_t* outguess_extract_message(
         }
         
         // 提取消息长度和CRC（前8字节）
-        std::vector<uint8_t> header_data = extract_bits_with_verification(&jpeg_data, 8);
+        int sequence_version = sequence_version_of(config);
+        std::vector<uint8_t> header_data = extract_bits_with_verification(&jpeg_data, 8, sequence_version);
         if (header_data.size() < 8) {
             result->error_code = OUTGUESS_ERROR_EXTRACTION_FAILED;
             result->error_message = strdup("Failed to extract message header");
@@ -212,7 +306,7 @@ outguess_extract_result_t* outguess_extract_message(
         }
         
         // 提取完整数据（头部+消息）
-        std::vector<uint8_t> full_data = extract_bits_with_verification(&jpeg_data, 8 + message_length);
+        std::vector<uint8_t> full_data = extract_bits_with_verification(&jpeg_data, 8 + message_length, sequence_version);
         if (full_data.size() < 8 + message_length) {
             result->error_code = OUTGUESS_ERROR_EXTRACTION_FAILED;
             result->error_message = strdup("Failed to extract complete message");
@@ -519,9 +613,25 @@ static std::string decrypt_message_aes(const std::vector<uint8_t>& encrypted_dat
     return result;
 }
 
-static std::vector<int> generate_secure_embedding_sequence(int total_coefficients, const std::string& seed) {
+int outguess_embedding_sequence_index_v2(int total_coefficients, const char* seed, int k) {
+    if (!seed) return -1;
+    FeistelSequence sequence(total_coefficients, std::string(seed));
+    if (k < 0 || k >= sequence.size()) return -1;
+    return sequence.index_at(k);
+}
+
+static std::vector<int> generate_secure_embedding_sequence(int total_coefficients, const std::string& seed, int version) {
     std::vector<int> sequence;
     
+    if (version == SEQUENCE_VERSION_FEISTEL) {
+        FeistelSequence feistel(total_coefficients, seed);
+        sequence.reserve(feistel.size());
+        for (int k = 0; k < feistel.size(); k++) {
+            sequence.push_back(feistel.index_at(k));
+        }
+        return sequence;
+    }
+    
     // 只选择可用的AC系数位置
     for (int i = 0; i < total_coefficients; i++) {
         if (i % DCT_BLOCK_SIZE != 0) { // 跳过DC系数
@@ -537,17 +647,19 @@ static std::vector<int> generate_secure_embedding_sequence(int total_coefficient
     return sequence;
 }
 
-static bool embed_bits_with_resistance(AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& data, int resistance_level) {
+static bool embed_bits_with_resistance(AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& data, int resistance_level, int sequence_version) {
     // 生成嵌入序列
-    auto sequence = generate_secure_embedding_sequence(jpeg_data->dct_coefficients.size(), "outguess_seed_v2");
+    EmbeddingSequence sequence(jpeg_data->dct_coefficients.size(), OUTGUESS_SEED, sequence_version);
     
     int bit_index = 0;
     int byte_index = 0;
     int attempts = 0;
     
-    for (int coeff_idx : sequence) {
+    for (int k = 0; k < sequence.size(); k++) {
         if (byte_index >= data.size()) break;
         
+        int coeff_idx = sequence.at(k);
+        
         // 检查系数是否适合嵌入
         if (abs(jpeg_data->dct_coefficients[coeff_idx]) < MIN_COEFF_VALUE) {
             continue;
@@ -591,17 +703,19 @@ static bool embed_bits_with_resistance(AdvancedJPEGData* jpeg_data, const std::v
     return byte_index >= data.size();
 }
 
-static std::vector<uint8_t> extract_bits_with_verification(const AdvancedJPEGData* jpeg_data, int expected_size) {
+static std::vector<uint8_t> extract_bits_with_verification(const AdvancedJPEGData* jpeg_data, int expected_size, int sequence_version) {
     std::vector<uint8_t> result;
     
-    auto sequence = generate_secure_embedding_sequence(jpeg_data->dct_coefficients.size(), "outguess_seed_v2");
+    EmbeddingSequence sequence(jpeg_data->dct_coefficients.size(), OUTGUESS_SEED, sequence_version);
     
     int bit_index = 0;
     uint8_t current_byte = 0;
     
-    for (int coeff_idx : sequence) {
+    for (int k = 0; k < sequence.size(); k++) {
         if (result.size() >= expected_size) break;
         
+        int coeff_idx = sequence.at(k);
+        
         if (abs(jpeg_data->dct_coefficients[coeff_idx]) < MIN_COEFF_VALUE) {
             continue;
         }
@@ -643,9 +757,9 @@ static double calculate_image_entropy(const AdvancedJPEGData* jpeg_data) {
     return entropy;
 }
 
-static bool verify_embedding_integrity(const AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& original_data) {
+static bool verify_embedding_integrity(const AdvancedJPEGData* jpeg_data, const std::vector<uint8_t>& original_data, int sequence_version) {
     // 尝试提取数据并与原始数据比较
-    auto extracted_data = extract_bits_with_verification(jpeg_data, original_data.size());
+    auto extracted_data = extract_bits_with_verification(jpeg_data, original_data.size(), sequence_version);
     
     if (extracted_data.size() != original_data.size()) {
         return false;
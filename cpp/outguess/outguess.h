@@ -28,6 +28,7 @@ typedef struct {
     int quality;                   // JPEG quality 1-100
     bool verbose;                  // Enable verbose logging
     int max_message_size;          // Maximum message size in bytes
+    int sequence_version;          // Embedding sequence: 0/1 = legacy shuffle, 2 = keyed Feistel (lazy)
 } outguess_config_t;
 
 // Result structures
@@ -94,6 +95,10 @@ typedef struct {
 outguess_stats_t* outguess_get_embedding_stats(const char* image_path);
 void outguess_free_stats(outguess_stats_t* stats);
 
+// Embedding sequence v2: coefficient index of the k-th embedding position,
+// computed on demand (matches the Java server's FeistelEmbeddingSequence)
+int outguess_embedding_sequence_index_v2(int total_coefficients, const char* seed, int k);
+
 // Callback for progress reporting
 typedef void (*outguess_progress_callback_t)(int progress, void* user_data);
 
@@ -0,0 +1,78 @@
+package com.outguess.server.grpc;
+
+import com.outguess.server.config.OutguessConfig;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随Spring容器启停gRPC服务（outguess.grpc-port 为0时不启动）
+ */
+@Component
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrpcServerLifecycle.class);
+
+    /** 除图像外其余字段的预留大小 */
+    private static final int MESSAGE_OVERHEAD = 64 * 1024;
+    /** 关闭时等待进行中调用完成的时间 */
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    @Autowired
+    private OutguessConfig config;
+
+    @Autowired
+    private OutguessGrpcService grpcService;
+
+    private volatile Server server;
+
+    @Override
+    public void start() {
+        if (config.getGrpcPort() <= 0) {
+            logger.info("outguess.grpc-port 为0，不启动gRPC服务");
+            return;
+        }
+        try {
+            server = NettyServerBuilder.forPort(config.getGrpcPort())
+                .maxInboundMessageSize(config.getMaxFileSize() + MESSAGE_OVERHEAD)
+                .addService(grpcService)
+                .build()
+                .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("gRPC服务启动失败，端口: " + config.getGrpcPort(), e);
+        }
+        logger.info("gRPC服务已启动，端口: {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server running = server;
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("gRPC调用未在 {} 秒内结束，强制关闭", SHUTDOWN_GRACE_SECONDS);
+                running.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.shutdownNow();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
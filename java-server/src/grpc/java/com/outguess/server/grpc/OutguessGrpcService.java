@@ -0,0 +1,271 @@
+package com.outguess.server.grpc;
+
+import com.google.protobuf.ByteString;
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.grpc.proto.CheckReply;
+import com.outguess.server.grpc.proto.CheckRequest;
+import com.outguess.server.grpc.proto.DecodeReply;
+import com.outguess.server.grpc.proto.DecodeRequest;
+import com.outguess.server.grpc.proto.OutguessGrpc;
+import com.outguess.server.model.OutguessRequest;
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.DecodeMetrics;
+import com.outguess.server.service.OutguessService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outguess gRPC服务，由OutguessService提供解码和检测
+ * 图像以bytes字段直接传入，解码结果以原始消息字节返回，不经过JSON和Base64
+ */
+@Component
+public class OutguessGrpcService extends OutguessGrpc.OutguessImplBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutguessGrpcService.class);
+
+    @Autowired
+    private OutguessService outguessService;
+
+    @Autowired
+    private OutguessConfig config;
+
+    @Autowired(required = false)
+    private DecodeMetrics metrics;
+
+    // DecodeStream的解码线程池，线程数与解码许可数一致
+    private ExecutorService streamExecutor;
+    private int streamWindow;
+
+    @PostConstruct
+    void init() {
+        int parallelism = config.getDecodeConcurrency() > 0
+            ? config.getDecodeConcurrency() : Runtime.getRuntime().availableProcessors();
+        streamWindow = config.getGrpcStreamWindow() > 0 ? config.getGrpcStreamWindow() : parallelism * 2;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        streamExecutor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "outguess-grpc-decode-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (metrics != null && streamExecutor instanceof ThreadPoolExecutor pool) {
+            metrics.gauge("outguess.executor.queued", "线程池排队任务数", () -> pool.getQueue().size(), "executor", "grpc-stream");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * 解码单个图像，解码失败通过errorCode返回，与REST接口一致
+     */
+    @Override
+    public void decode(DecodeRequest request, StreamObserver<DecodeReply> responseObserver) {
+        try {
+            responseObserver.onNext(decodeReply(request));
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            logger.error("gRPC解码时发生未预期的错误", e);
+            responseObserver.onError(Status.INTERNAL.withDescription("服务器内部错误").asRuntimeException());
+        }
+    }
+
+    /**
+     * 检查隐藏数据
+     */
+    @Override
+    public void check(CheckRequest request, StreamObserver<CheckReply> responseObserver) {
+        try {
+            OutguessRequest checkRequest = new OutguessRequest();
+            checkRequest.setImageData(request.getImageData().toByteArray());
+            OutguessResponse response = outguessService.checkHiddenData(checkRequest);
+            countResponse(response);
+
+            CheckReply.Builder reply = CheckReply.newBuilder().setSuccess(response.isSuccess());
+            if (response.isSuccess()) {
+                reply.setHasHiddenData(Boolean.TRUE.equals(response.getVerified()))
+                    .setMessage(response.getMessage());
+                if (response.getConfidence() != null) {
+                    reply.setConfidence(response.getConfidence());
+                }
+                OutguessResponse.ResponseMetadata metadata = response.getMetadata();
+                if (metadata != null && metadata.getSampledBlocks() != null) {
+                    reply.setSampledBlocks(metadata.getSampledBlocks());
+                }
+            } else {
+                reply.setErrorCode(response.getErrorCode())
+                    .setErrorMessage(response.getErrorMessage());
+            }
+            responseObserver.onNext(reply.build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            logger.error("gRPC检查隐藏数据时发生未预期的错误", e);
+            responseObserver.onError(Status.INTERNAL.withDescription("服务器内部错误").asRuntimeException());
+        }
+    }
+
+    /**
+     * 双向流式解码
+     * 每个流最多向客户端请求 grpc-stream-window 个图像，每发出一个结果才再请求一个；
+     * 客户端读取变慢时结果留在队列中，同时停止读取新的图像
+     */
+    @Override
+    public StreamObserver<DecodeRequest> decodeStream(StreamObserver<DecodeReply> responseObserver) {
+        ServerCallStreamObserver<DecodeReply> responses = (ServerCallStreamObserver<DecodeReply>) responseObserver;
+        DecodeStreamCall call = new DecodeStreamCall(responses);
+        responses.disableAutoRequest();
+        responses.setOnReadyHandler(call::drain);
+        responses.setOnCancelHandler(call::cancel);
+        responses.request(streamWindow);
+        return call;
+    }
+
+    private DecodeReply decodeReply(DecodeRequest request) {
+        OutguessService.PayloadResult result = outguessService.decodePayload(
+            request.getImageData().toByteArray(), emptyToNull(request.getPassword()), request.getVerbose());
+        OutguessResponse response = result.response();
+        countResponse(response);
+
+        DecodeReply.Builder reply = DecodeReply.newBuilder()
+            .setId(request.getId())
+            .setFilename(request.getFilename())
+            .setSuccess(response.isSuccess());
+        if (response.isSuccess()) {
+            OutguessResponse.ResponseMetadata metadata = response.getMetadata();
+            reply.setPayload(ByteString.copyFrom(result.payload()))
+                .setMessageSize(response.getMessageSize())
+                .setVerified(Boolean.TRUE.equals(response.getVerified()))
+                .setProcessingTime(response.getProcessingTime())
+                .setCached(metadata != null && Boolean.TRUE.equals(metadata.getCached()));
+        } else {
+            reply.setErrorCode(response.getErrorCode())
+                .setErrorMessage(response.getErrorMessage());
+        }
+        return reply.build();
+    }
+
+    private void countResponse(OutguessResponse response) {
+        if (metrics != null) {
+            metrics.countResponse(response);
+        }
+    }
+
+    /**
+     * proto3的string字段没有null，空字符串视为未设置密码
+     */
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 单个DecodeStream调用的状态
+     * 解码结果在线程池中完成后进入队列，由drain在流可写时按完成顺序发出；
+     * onNext和onCompleted只在持有本对象锁时调用，不会并发写流
+     */
+    private final class DecodeStreamCall implements StreamObserver<DecodeRequest> {
+
+        private final ServerCallStreamObserver<DecodeReply> responses;
+        private final Queue<DecodeReply> completed = new ConcurrentLinkedQueue<>();
+        private int pending; // 已收到但结果尚未发出的图像数
+        private boolean halfClosed;
+        private boolean finished;
+
+        DecodeStreamCall(ServerCallStreamObserver<DecodeReply> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public void onNext(DecodeRequest request) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                pending++;
+            }
+            try {
+                streamExecutor.execute(() -> {
+                    DecodeReply reply;
+                    try {
+                        reply = decodeReply(request);
+                    } catch (RuntimeException e) {
+                        logger.error("gRPC流式解码时发生未预期的错误", e);
+                        reply = DecodeReply.newBuilder()
+                            .setId(request.getId())
+                            .setFilename(request.getFilename())
+                            .setErrorCode("INTERNAL_ERROR")
+                            .setErrorMessage("服务器内部错误")
+                            .build();
+                    }
+                    completed.add(reply);
+                    drain();
+                });
+            } catch (RejectedExecutionException e) {
+                fail(Status.UNAVAILABLE.withDescription("服务正在关闭"));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            logger.warn("gRPC解码流被客户端中止: {}", Status.fromThrowable(t));
+            cancel();
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            drain();
+        }
+
+        /**
+         * 在流可写时发出已完成的结果，每发出一个再向客户端请求一个图像；
+         * 客户端已结束发送且全部结果发出后关闭流
+         */
+        synchronized void drain() {
+            if (finished) {
+                return;
+            }
+            DecodeReply reply;
+            while (responses.isReady() && (reply = completed.poll()) != null) {
+                responses.onNext(reply);
+                pending--;
+                if (!halfClosed) {
+                    responses.request(1);
+                }
+            }
+            if (halfClosed && pending == 0) {
+                finished = true;
+                responses.onCompleted();
+            }
+        }
+
+        synchronized void cancel() {
+            finished = true;
+            completed.clear();
+        }
+
+        private synchronized void fail(Status status) {
+            if (!finished) {
+                finished = true;
+                completed.clear();
+                responses.onError(status.asRuntimeException());
+            }
+        }
+    }
+}
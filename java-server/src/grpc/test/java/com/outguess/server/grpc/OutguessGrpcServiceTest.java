@@ -0,0 +1,170 @@
+package com.outguess.server.grpc;
+
+import com.google.protobuf.ByteString;
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.grpc.proto.CheckReply;
+import com.outguess.server.grpc.proto.CheckRequest;
+import com.outguess.server.grpc.proto.DecodeReply;
+import com.outguess.server.grpc.proto.DecodeRequest;
+import com.outguess.server.grpc.proto.OutguessGrpc;
+import com.outguess.server.model.OutguessRequest;
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.OutguessService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OutguessGrpcServiceTest {
+
+    private OutguessService outguessService;
+    private OutguessGrpcService grpcService;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        OutguessConfig config = new OutguessConfig();
+        config.setDecodeConcurrency(2);
+        config.setGrpcStreamWindow(2);
+        outguessService = mock(OutguessService.class);
+        grpcService = new OutguessGrpcService();
+        ReflectionTestUtils.setField(grpcService, "outguessService", outguessService);
+        ReflectionTestUtils.setField(grpcService, "config", config);
+        grpcService.init();
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(grpcService).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        grpcService.shutdown();
+    }
+
+    @Test
+    public void testDecodeReturnsRawPayload() {
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, 1, 2};
+        byte[] payload = "消息".getBytes(StandardCharsets.UTF_8);
+        OutguessResponse meta = OutguessResponse.success(null, payload.length, 7L, true);
+        when(outguessService.decodePayload(eq(image), eq("testpass"), anyBoolean()))
+            .thenReturn(new OutguessService.PayloadResult(meta, payload));
+
+        DecodeReply reply = OutguessGrpc.newBlockingStub(channel).decode(DecodeRequest.newBuilder()
+            .setImageData(ByteString.copyFrom(image))
+            .setPassword("testpass")
+            .setId(42)
+            .build());
+
+        assertTrue(reply.getSuccess());
+        assertEquals(42, reply.getId());
+        assertArrayEquals(payload, reply.getPayload().toByteArray());
+        assertEquals(payload.length, reply.getMessageSize());
+        assertTrue(reply.getVerified());
+    }
+
+    @Test
+    public void testDecodeReportsErrorCodeWithoutPassword() {
+        when(outguessService.decodePayload(any(byte[].class), isNull(), anyBoolean()))
+            .thenReturn(new OutguessService.PayloadResult(OutguessResponse.error("DECODE_FAILED", "无效的JPEG文件"), null));
+
+        DecodeReply reply = OutguessGrpc.newBlockingStub(channel).decode(DecodeRequest.newBuilder()
+            .setImageData(ByteString.copyFrom(new byte[] {1}))
+            .build());
+
+        assertFalse(reply.getSuccess());
+        assertEquals("DECODE_FAILED", reply.getErrorCode());
+        assertTrue(reply.getPayload().isEmpty());
+    }
+
+    @Test
+    public void testCheck() {
+        OutguessResponse response = new OutguessResponse(true);
+        response.setMessage("检测到隐藏数据");
+        response.setVerified(true);
+        response.setConfidence(0.9);
+        when(outguessService.checkHiddenData(any(OutguessRequest.class))).thenReturn(response);
+
+        CheckReply reply = OutguessGrpc.newBlockingStub(channel).check(CheckRequest.newBuilder()
+            .setImageData(ByteString.copyFrom(new byte[] {(byte) 0xFF, (byte) 0xD8}))
+            .build());
+
+        assertTrue(reply.getSuccess());
+        assertTrue(reply.getHasHiddenData());
+        assertEquals(0.9, reply.getConfidence(), 1e-9);
+    }
+
+    @Test
+    public void testDecodeStreamReturnsEveryResult() throws Exception {
+        // 偶数id解码成功（消息即图像本身），奇数id解码失败
+        when(outguessService.decodePayload(any(byte[].class), any(), anyBoolean()))
+            .thenAnswer(invocation -> {
+                byte[] image = invocation.getArgument(0);
+                return image[0] % 2 == 0
+                    ? new OutguessService.PayloadResult(OutguessResponse.success(null, image.length, 1L, false), image)
+                    : new OutguessService.PayloadResult(OutguessResponse.error("DECODE_FAILED", "无效的JPEG文件"), null);
+            });
+
+        int count = 20;
+        List<DecodeReply> replies = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<DecodeRequest> requests = OutguessGrpc.newStub(channel).decodeStream(new StreamObserver<>() {
+            @Override
+            public void onNext(DecodeReply reply) {
+                replies.add(reply);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                done.complete(null);
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            requests.onNext(DecodeRequest.newBuilder()
+                .setId(i)
+                .setFilename(i + ".jpg")
+                .setImageData(ByteString.copyFrom(new byte[] {(byte) i}))
+                .build());
+        }
+        requests.onCompleted();
+        done.get(10, TimeUnit.SECONDS);
+
+        // 结果按完成顺序返回，每个请求恰好一个结果
+        assertEquals(count, replies.size());
+        Set<Long> ids = replies.stream().map(DecodeReply::getId).collect(Collectors.toSet());
+        assertEquals(count, ids.size());
+        for (DecodeReply reply : replies) {
+            assertEquals(reply.getId() + ".jpg", reply.getFilename());
+            assertEquals(reply.getId() % 2 == 0, reply.getSuccess());
+        }
+    }
+}
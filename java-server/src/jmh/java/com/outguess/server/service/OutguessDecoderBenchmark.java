@@ -0,0 +1,193 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.CoefficientStore;
+import com.outguess.server.jpeg.JpegImage;
+import com.outguess.server.jpeg.JpegParser;
+import com.outguess.server.jpeg.TestJpegs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutguessDecoder热点路径的基准测试
+ *
+ * 输入为合成的1/12/48百万像素JPEG（带噪声纹理，4:2:0采样），运行方式见README的“基准测试”一节，
+ * 默认附带GC profiler以报告分配速率（gc.alloc.rate.norm为每次操作分配的字节数）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class OutguessDecoderBenchmark {
+
+    private static final String SEED = "outguess_seed_v2";
+    private static final int PAYLOAD_BYTES = 4096;
+    private static final String PASSWORD = "benchmark";
+
+    @Param({"1", "12", "48"})
+    public int megapixels;
+
+    private OutguessDecoder decoder;
+    private byte[] jpeg;
+    private byte[] stego;
+    private byte[] encryptedStego;
+    private JpegImage image;
+    private CoefficientStore coefficients;
+    private EmbeddingSequence shuffle;
+    private final byte[] payload = new byte[PAYLOAD_BYTES];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // 4:3画幅，宽高取16的倍数使MCU对齐
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4.0 / 3)) / 16 * 16;
+        int height = width * 3 / 4 / 16 * 16;
+        jpeg = TestJpegs.encode(noiseImage(width, height, megapixels), 0.85f);
+
+        decoder = new OutguessDecoder(new OutguessConfig());
+        image = decoder.parseJpegData(jpeg);
+        coefficients = image.getCoefficients();
+        shuffle = decoder.embeddingSequence(EmbeddingSequence.VERSION_SHUFFLE, coefficients.size());
+
+        // 完整解码流程需要真正嵌入了消息的图像，否则只测到头部校验失败
+        OutguessEmbedder embedder = new OutguessEmbedder(decoder, new OutguessConfig());
+        String message = "x".repeat(PAYLOAD_BYTES);
+        stego = embed(embedder, message, null);
+        encryptedStego = embed(embedder, message, PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        image.close();
+    }
+
+    /**
+     * 熵解码出全部DCT系数（包括系数存储的借出与归还）
+     */
+    @Benchmark
+    public int parseJpegData() throws Exception {
+        try (JpegImage parsed = decoder.parseJpegData(jpeg)) {
+            return parsed.getCoefficients().size();
+        }
+    }
+
+    /**
+     * 容量估算的计数解析：熵解码但不保存系数
+     */
+    @Benchmark
+    public long countUsableCoefficients() throws Exception {
+        return JpegParser.count(ByteBuffer.wrap(jpeg), 2).usable();
+    }
+
+    /**
+     * 版本1：完整生成洗牌置换（不经过缓存）
+     */
+    @Benchmark
+    public int[] generateShuffleSequence() {
+        return EmbeddingSequenceCache.generate(coefficients.size(), SEED);
+    }
+
+    /**
+     * 版本2：按需计算整个序列的全部位置
+     */
+    @Benchmark
+    public void walkFeistelSequence(Blackhole bh) {
+        EmbeddingSequence sequence = decoder.embeddingSequence(EmbeddingSequence.VERSION_FEISTEL, coefficients.size());
+        for (int k = 0, n = sequence.length(); k < n; k++) {
+            bh.consume(sequence.indexAt(k));
+        }
+    }
+
+    /**
+     * 沿洗牌序列提取4KB消息数据
+     */
+    @Benchmark
+    public byte[] extractBitsFromDCT() {
+        decoder.extractBitsFromDCT(new OutguessDecoder.ExtractionCursor(coefficients, shuffle), payload, 0, PAYLOAD_BYTES);
+        return payload;
+    }
+
+    @Benchmark
+    public double calculateImageEntropy() {
+        return decoder.calculateImageEntropy(coefficients);
+    }
+
+    /**
+     * /check使用的抽样检测（默认抽样1024个块）
+     */
+    @Benchmark
+    public OutguessDecoder.DetectionResult detectHiddenData() {
+        return decoder.detectHiddenData(jpeg);
+    }
+
+    /**
+     * 完整解码流程：解析、头部校验、沿序列提取4KB载荷并校验CRC
+     */
+    @Benchmark
+    public OutguessDecoder.DecodeResult extractMessage() {
+        return decoder.extractMessage(stego, null, false);
+    }
+
+    /**
+     * 带密码的完整解码流程，额外包含解密；同一密码与盐的派生密钥在预热后命中缓存，不计PBKDF2的耗时
+     */
+    @Benchmark
+    public OutguessDecoder.DecodeResult extractEncryptedMessage() {
+        return decoder.extractMessage(encryptedStego, PASSWORD, false);
+    }
+
+    private byte[] embed(OutguessEmbedder embedder, String message, String password) {
+        OutguessEmbedder.EmbedResult result = embedder.embedMessage(jpeg, message, password);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("嵌入基准消息失败: " + result.getErrorMessage());
+        }
+        OutguessDecoder.DecodeResult decoded = decoder.extractMessage(result.getImageData(), password, false);
+        if (!decoded.isSuccess() || !message.equals(decoded.getMessage())) {
+            throw new IllegalStateException("基准图像解码失败: " + decoded.getErrorMessage());
+        }
+        return result.getImageData();
+    }
+
+    /**
+     * 直接写栅格数据，避免逐像素setRGB在48MP时耗时过长
+     */
+    private static BufferedImage noiseImage(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = (x * 7 + y * 3) & 0xFF;
+                int noise = random.nextInt(64) - 32;
+                int r = clamp(base + noise);
+                int g = clamp((base ^ 0x55) + noise);
+                int b = clamp(255 - base + noise);
+                row[x] = (r << 16) | (g << 8) | b;
+            }
+            image.getRaster().setDataElements(0, y, width, 1, row);
+        }
+        return image;
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+}
@@ -0,0 +1,460 @@
+package com.outguess.server.cli;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.service.OutguessDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 批量扫描本地目录中的JPEG（不启动Web服务）
+ *
+ * 按目录名排序深度优先遍历，文件以内存映射方式读取后直接交给OutguessDecoder，
+ * 解码在work-stealing线程池中并行执行；结果按遍历顺序逐行写入JSONL，
+ * 因此检查点只需记录已写出的文件数和输出文件长度，中断后可用 --resume 从检查点继续。
+ *
+ * 运行方式：
+ *   java -cp outguess-server-decoder-1.0.0.jar -Dloader.main=com.outguess.server.cli.BulkScanner \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher /data/images --output results.jsonl
+ */
+public class BulkScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkScanner.class);
+
+    private static final String USAGE = String.join("\n",
+        "用法: BulkScanner <目录> [选项]",
+        "  --output <文件>              结果JSONL文件（默认 scan-results.jsonl）",
+        "  --checkpoint <文件>          检查点文件（默认 <output>.checkpoint）",
+        "  --resume                     从检查点继续上次中断的扫描",
+        "  --mode <all|check|extract>   检测隐藏数据、提取消息或两者都做（默认 all）",
+        "  --password <密码>            提取消息时使用的密码",
+        "  --threads <n>                解码线程数（默认CPU核数）",
+        "  --max-file-size <bytes>      超过该大小的文件不解码（默认10MB）",
+        "  --checkpoint-interval <n>    每写出n个结果保存一次检查点（默认1000）",
+        "  --progress-seconds <n>       输出进度的间隔秒数（默认10）");
+
+    private final Options options;
+    private final OutguessDecoder decoder;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    /**
+     * 命令行选项
+     */
+    public record Options(Path root, Path output, Path checkpoint, boolean resume,
+                          boolean check, boolean extract, String password, int threads,
+                          int maxFileSize, int checkpointInterval, long progressIntervalMillis) {}
+
+    /**
+     * 单个文件的扫描结果，对应JSONL中的一行
+     * message为按UTF-8解码的文本，非文本载荷会被替换字符破坏；payloadBase64为原始载荷字节的Base64
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ScanResult(String path, Long size, Boolean hasHiddenData, Double confidence,
+                             Boolean decoded, String message, String payloadBase64, Integer messageSize, Boolean verified,
+                             String errorCode, String errorMessage, long processingTime) {}
+
+    /**
+     * 检查点：遍历顺序中前processed个文件的结果已完整写入输出文件的前outputBytes字节
+     */
+    public record Checkpoint(String root, long processed, long outputBytes) {}
+
+    /**
+     * 本次运行的统计
+     */
+    public record Summary(long scanned, long resumed, long hidden, long decoded, long errors) {}
+
+    public BulkScanner(Options options) {
+        this.options = options;
+
+        OutguessConfig config = new OutguessConfig();
+        config.setMaxFileSize(options.maxFileSize());
+        // 文件级并行已占满所有核，单个图像不再按重启区间并行解码
+        config.setParallelDecodeThreads(1);
+        this.decoder = new OutguessDecoder(config);
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            Summary summary = new BulkScanner(options).run();
+            logger.info("扫描完成: 本次 {} 个文件（跳过已完成 {} 个），检测到隐藏数据 {} 个，提取成功 {} 个，读取失败 {} 个",
+                summary.scanned(), summary.resumed(), summary.hidden(), summary.decoded(), summary.errors());
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("扫描失败", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 解析命令行参数，参数错误时抛出IllegalArgumentException
+     */
+    public static Options parse(String[] args) {
+        Path root = null;
+        Path output = Path.of("scan-results.jsonl");
+        Path checkpoint = null;
+        boolean resume = false;
+        String mode = "all";
+        String password = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxFileSize = new OutguessConfig().getMaxFileSize();
+        int checkpointInterval = 1000;
+        long progressSeconds = 10;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--output" -> output = Path.of(value(args, ++i, arg));
+                case "--checkpoint" -> checkpoint = Path.of(value(args, ++i, arg));
+                case "--resume" -> resume = true;
+                case "--mode" -> mode = value(args, ++i, arg);
+                case "--password" -> password = value(args, ++i, arg);
+                case "--threads" -> threads = positiveInt(value(args, ++i, arg), arg);
+                case "--max-file-size" -> maxFileSize = positiveInt(value(args, ++i, arg), arg);
+                case "--checkpoint-interval" -> checkpointInterval = positiveInt(value(args, ++i, arg), arg);
+                case "--progress-seconds" -> progressSeconds = positiveInt(value(args, ++i, arg), arg);
+                default -> {
+                    if (arg.startsWith("--") || root != null) {
+                        throw new IllegalArgumentException("无法识别的参数: " + arg);
+                    }
+                    root = Path.of(arg);
+                }
+            }
+        }
+
+        if (root == null) {
+            throw new IllegalArgumentException("缺少要扫描的目录");
+        }
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("不是目录: " + root);
+        }
+        boolean check = mode.equals("all") || mode.equals("check");
+        boolean extract = mode.equals("all") || mode.equals("extract");
+        if (!check && !extract) {
+            throw new IllegalArgumentException("无效的模式: " + mode);
+        }
+        if (checkpoint == null) {
+            checkpoint = Path.of(output + ".checkpoint");
+        }
+        return new Options(root.toAbsolutePath().normalize(), output, checkpoint, resume, check, extract,
+            password, threads, maxFileSize, checkpointInterval, TimeUnit.SECONDS.toMillis(progressSeconds));
+    }
+
+    /**
+     * 取选项后面的值，缺少值时抛出IllegalArgumentException
+     */
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length || args[index].startsWith("--")) {
+            throw new IllegalArgumentException("选项缺少值: " + option);
+        }
+        return args[index];
+    }
+
+    private static int positiveInt(String value, String option) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " 需要整数: " + value);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(option + " 必须大于0: " + value);
+        }
+        return parsed;
+    }
+
+    /**
+     * 执行扫描
+     * 同时在途的文件数受限（线程数的4倍），结果按遍历顺序写出
+     */
+    public Summary run() throws IOException {
+        Checkpoint start = options.resume() ? readCheckpoint() : null;
+        long resumed = start != null ? start.processed() : 0;
+        long outputBytes = start != null ? start.outputBytes() : 0;
+
+        ForkJoinPool pool = new ForkJoinPool(options.threads());
+        try (FileChannel channel = FileChannel.open(options.output(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // 丢弃检查点之后写出的内容（包括中断时写了一半的行），这些文件会重新扫描
+            channel.truncate(outputBytes);
+            channel.position(outputBytes);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+
+            Iterator<Path> files = new SortedJpegWalker(options.root());
+            for (long skip = 0; skip < resumed && files.hasNext(); skip++) {
+                files.next();
+            }
+            if (resumed > 0) {
+                logger.info("从检查点继续，跳过已完成的 {} 个文件", resumed);
+            }
+
+            Progress progress = new Progress(resumed, outputBytes);
+            Deque<ForkJoinTask<ScanResult>> window = new ArrayDeque<>();
+            int maxInFlight = options.threads() * 4;
+            while (files.hasNext()) {
+                Path file = files.next();
+                window.add(pool.submit(() -> scan(file)));
+                if (window.size() >= maxInFlight) {
+                    write(window.poll().join(), out, channel, progress);
+                }
+            }
+            while (!window.isEmpty()) {
+                write(window.poll().join(), out, channel, progress);
+            }
+
+            saveCheckpoint(out, channel, progress);
+            progress.report(true);
+            return new Summary(progress.processed - resumed, resumed, progress.hidden, progress.decoded,
+                progress.errors);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 扫描单个文件：内存映射读取，按模式检测隐藏数据和/或提取消息
+     */
+    ScanResult scan(Path file) {
+        long startTime = System.currentTimeMillis();
+        String path = relativePath(file);
+        long size = -1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size == 0) {
+                return error(path, size, "INVALID_IMAGE_DATA", "文件为空", startTime);
+            }
+            if (size > options.maxFileSize()) {
+                return error(path, size, "FILE_TOO_LARGE", "文件大小超过限制: " + options.maxFileSize() + " bytes",
+                    startTime);
+            }
+            // 映射在通道关闭后仍然有效，直到缓冲区被回收
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            Boolean hasHiddenData = null;
+            Double confidence = null;
+            if (options.check()) {
+                OutguessDecoder.DetectionResult detection = decoder.detectHiddenData(data);
+                hasHiddenData = detection.hasHiddenData();
+                confidence = detection.getConfidence();
+            }
+
+            if (!options.extract()) {
+                return new ScanResult(path, size, hasHiddenData, confidence, null, null, null, null, null,
+                    null, null, System.currentTimeMillis() - startTime);
+            }
+            OutguessDecoder.DecodeResult result = decoder.extractMessage(data, options.password(), false);
+            if (result.isSuccess()) {
+                return new ScanResult(path, size, hasHiddenData, confidence, true, result.getMessage(),
+                    Base64.getEncoder().encodeToString(result.getPayload()),
+                    result.getMessageSize(), result.isVerified(), null, null,
+                    System.currentTimeMillis() - startTime);
+            }
+            return new ScanResult(path, size, hasHiddenData, confidence, false, null, null, null, null,
+                "DECODE_FAILED", result.getErrorMessage(), System.currentTimeMillis() - startTime);
+
+        } catch (IOException | InternalError e) {
+            // 映射期间文件被截断时访问缓冲区会抛出InternalError
+            logger.warn("读取文件失败: {}: {}", file, e.toString());
+            return error(path, size >= 0 ? size : null, "READ_ERROR", "读取文件失败: " + e.getMessage(), startTime);
+        }
+    }
+
+    private static ScanResult error(String path, Long size, String errorCode, String errorMessage, long startTime) {
+        return new ScanResult(path, size, null, null, null, null, null, null, null,
+            errorCode, errorMessage, System.currentTimeMillis() - startTime);
+    }
+
+    private void write(ScanResult result, OutputStream out, FileChannel channel, Progress progress)
+            throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(result);
+        out.write(line);
+        out.write('\n');
+        progress.record(result, line.length + 1);
+
+        if (progress.processed % options.checkpointInterval() == 0) {
+            saveCheckpoint(out, channel, progress);
+        }
+        progress.report(false);
+    }
+
+    /**
+     * 先把结果刷到磁盘再替换检查点文件，检查点记录的内容一定已经持久化
+     */
+    private void saveCheckpoint(OutputStream out, FileChannel channel, Progress progress) throws IOException {
+        out.flush();
+        channel.force(false);
+
+        Checkpoint checkpoint = new Checkpoint(options.root().toString(), progress.processed, progress.outputBytes);
+        Path temp = options.checkpoint().resolveSibling(options.checkpoint().getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), checkpoint);
+        Files.move(temp, options.checkpoint(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Checkpoint readCheckpoint() throws IOException {
+        if (!Files.exists(options.checkpoint())) {
+            logger.info("检查点文件不存在，从头开始扫描: {}", options.checkpoint());
+            return null;
+        }
+        Checkpoint checkpoint = objectMapper.readValue(options.checkpoint().toFile(), Checkpoint.class);
+        if (!options.root().toString().equals(checkpoint.root())) {
+            throw new IOException("检查点属于另一个目录: " + checkpoint.root());
+        }
+        long outputSize = Files.exists(options.output()) ? Files.size(options.output()) : 0;
+        if (outputSize < checkpoint.outputBytes()) {
+            throw new IOException("输出文件比检查点记录的短，无法继续: " + options.output());
+        }
+        return checkpoint;
+    }
+
+    private String relativePath(Path file) {
+        return options.root().relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 已写出结果的计数，并按间隔输出扫描速度
+     */
+    private final class Progress {
+
+        private final long startTime = System.nanoTime();
+        private final long resumed;
+        private long processed;
+        private long outputBytes;
+        private long hidden;
+        private long decoded;
+        private long errors;
+        private long lastReportTime = startTime;
+        private long lastReportProcessed;
+
+        Progress(long resumed, long outputBytes) {
+            this.resumed = resumed;
+            this.processed = resumed;
+            this.outputBytes = outputBytes;
+            this.lastReportProcessed = resumed;
+        }
+
+        void record(ScanResult result, int bytes) {
+            processed++;
+            outputBytes += bytes;
+            if (Boolean.TRUE.equals(result.hasHiddenData())) {
+                hidden++;
+            }
+            if (Boolean.TRUE.equals(result.decoded())) {
+                decoded++;
+            }
+            if (result.decoded() == null && result.errorCode() != null) {
+                errors++;
+            }
+        }
+
+        void report(boolean last) {
+            long now = System.nanoTime();
+            if (!last && now - lastReportTime < TimeUnit.MILLISECONDS.toNanos(options.progressIntervalMillis())) {
+                return;
+            }
+            double intervalRate = rate(processed - lastReportProcessed, now - lastReportTime);
+            double overallRate = rate(processed - resumed, now - startTime);
+            logger.info("已扫描 {} 个文件，当前 {} files/s，平均 {} files/s，隐藏数据 {}，提取成功 {}，读取失败 {}",
+                processed, String.format(Locale.ROOT, "%.1f", intervalRate),
+                String.format(Locale.ROOT, "%.1f", overallRate), hidden, decoded, errors);
+            lastReportTime = now;
+            lastReportProcessed = processed;
+        }
+
+        private static double rate(long count, long nanos) {
+            return nanos > 0 ? count * 1e9 / nanos : 0.0;
+        }
+    }
+
+    /**
+     * 按名称排序的深度优先遍历，只返回扩展名为 .jpg/.jpeg 的普通文件；不跟随符号链接。
+     * 每次只列出一个目录的内容，内存占用与目录树大小无关；
+     * 只要目录内容不变，遍历顺序就是确定的，检查点据此按序号跳过已完成的文件
+     */
+    static final class SortedJpegWalker implements Iterator<Path> {
+
+        private final Deque<Iterator<Path>> stack = new ArrayDeque<>();
+        private Path next;
+
+        SortedJpegWalker(Path root) {
+            stack.push(list(root));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                Iterator<Path> entries = stack.peek();
+                if (!entries.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Path entry = entries.next();
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    stack.push(list(entry));
+                } else if (isJpeg(entry) && Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    next = entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Path file = next;
+            next = null;
+            return file;
+        }
+
+        private static Iterator<Path> list(Path directory) {
+            try (Stream<Path> entries = Files.list(directory)) {
+                List<Path> sorted = entries.sorted().toList();
+                return sorted.iterator();
+            } catch (IOException e) {
+                logger.warn("无法读取目录，已跳过: {}: {}", directory, e.toString());
+                return List.<Path>of().iterator();
+            }
+        }
+
+        private static boolean isJpeg(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jpg") || name.endsWith(".jpeg");
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.outguess.server.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * Outguess配置类
  */
@@ -15,6 +17,23 @@ public class OutguessConfig {
     private String tempDir = System.getProperty("java.io.tmpdir");
     private boolean enableVerboseLogging = false;
     private int maxConcurrentRequests = 10;
+    private long sequenceCacheMaxBytes = 256L * 1024 * 1024; // 256MB
+    private List<Integer> sequenceVersions = List.of(2, 1); // 解码时依次尝试的嵌入序列版本
+    private long coefficientSpillThresholdBytes = 64L * 1024 * 1024; // 超过64MB的系数数据溢出到临时文件
+    private long coefficientSpillMaxBytes = 2L * 1024 * 1024 * 1024; // 同时存在的映射文件总量上限 2GB，0为不限制
+    private long bufferPoolMaxBytes = 128L * 1024 * 1024; // 缓冲池中空闲数组的总预算 128MB
+    private int batchMaxItems = 1000; // 单个批量请求最多包含的图像数
+    private int parallelDecodeThreads = 0; // 按重启区间并行解码的线程数，0为CPU核数，1为关闭
+    private long resultCacheMaxBytes = 64L * 1024 * 1024; // 解码结果缓存预算 64MB，0为关闭
+    private long resultCacheTtlSeconds = 600; // 解码结果缓存的有效期
+    private int decodeConcurrency = 0; // 同时进行CPU密集解码的最大数量，0为CPU核数
+    private int checkSampleBlocks = 1024; // 隐藏数据检测时抽样熵解码的块数，0为解码整幅图像
+    private int embedSequenceVersion = 1; // 嵌入消息时使用的序列版本（1=旧版洗牌，移动端JNI未设置sequence_version时即为此版本）
+    private String embedCipher = "aes-gcm"; // 有密码时嵌入使用的加密方式：aes-gcm 或 legacy-xor
+    private int kdfIterations = 210_000; // 加密时PBKDF2-HMAC-SHA256的迭代次数
+    private int keyCacheMaxEntries = 1024; // 派生密钥缓存的最大条目数
+    private int grpcPort = 9090; // gRPC服务端口（-Pgrpc构建时生效），0为不启动
+    private int grpcStreamWindow = 0; // DecodeStream中每个流同时在途的图像数，0为decode-concurrency的两倍
     
     // Getters and Setters
     public int getMaxFileSize() {
@@ -56,4 +75,140 @@ public class OutguessConfig {
     public void setMaxConcurrentRequests(int maxConcurrentRequests) {
         this.maxConcurrentRequests = maxConcurrentRequests;
     }
-}
\ No newline at end of file
+    
+    public long getSequenceCacheMaxBytes() {
+        return sequenceCacheMaxBytes;
+    }
+    
+    public void setSequenceCacheMaxBytes(long sequenceCacheMaxBytes) {
+        this.sequenceCacheMaxBytes = sequenceCacheMaxBytes;
+    }
+    
+    public List<Integer> getSequenceVersions() {
+        return sequenceVersions;
+    }
+    
+    public void setSequenceVersions(List<Integer> sequenceVersions) {
+        this.sequenceVersions = sequenceVersions;
+    }
+    
+    public long getCoefficientSpillThresholdBytes() {
+        return coefficientSpillThresholdBytes;
+    }
+    
+    public void setCoefficientSpillThresholdBytes(long coefficientSpillThresholdBytes) {
+        this.coefficientSpillThresholdBytes = coefficientSpillThresholdBytes;
+    }
+    
+    public long getCoefficientSpillMaxBytes() {
+        return coefficientSpillMaxBytes;
+    }
+    
+    public void setCoefficientSpillMaxBytes(long coefficientSpillMaxBytes) {
+        this.coefficientSpillMaxBytes = coefficientSpillMaxBytes;
+    }
+    
+    public long getBufferPoolMaxBytes() {
+        return bufferPoolMaxBytes;
+    }
+    
+    public void setBufferPoolMaxBytes(long bufferPoolMaxBytes) {
+        this.bufferPoolMaxBytes = bufferPoolMaxBytes;
+    }
+    
+    public int getBatchMaxItems() {
+        return batchMaxItems;
+    }
+    
+    public void setBatchMaxItems(int batchMaxItems) {
+        this.batchMaxItems = batchMaxItems;
+    }
+    
+    public int getParallelDecodeThreads() {
+        return parallelDecodeThreads;
+    }
+    
+    public void setParallelDecodeThreads(int parallelDecodeThreads) {
+        this.parallelDecodeThreads = parallelDecodeThreads;
+    }
+    
+    public long getResultCacheMaxBytes() {
+        return resultCacheMaxBytes;
+    }
+    
+    public void setResultCacheMaxBytes(long resultCacheMaxBytes) {
+        this.resultCacheMaxBytes = resultCacheMaxBytes;
+    }
+    
+    public long getResultCacheTtlSeconds() {
+        return resultCacheTtlSeconds;
+    }
+    
+    public void setResultCacheTtlSeconds(long resultCacheTtlSeconds) {
+        this.resultCacheTtlSeconds = resultCacheTtlSeconds;
+    }
+    
+    public int getDecodeConcurrency() {
+        return decodeConcurrency;
+    }
+    
+    public void setDecodeConcurrency(int decodeConcurrency) {
+        this.decodeConcurrency = decodeConcurrency;
+    }
+    
+    public int getCheckSampleBlocks() {
+        return checkSampleBlocks;
+    }
+    
+    public void setCheckSampleBlocks(int checkSampleBlocks) {
+        this.checkSampleBlocks = checkSampleBlocks;
+    }
+    
+    public int getEmbedSequenceVersion() {
+        return embedSequenceVersion;
+    }
+    
+    public void setEmbedSequenceVersion(int embedSequenceVersion) {
+        this.embedSequenceVersion = embedSequenceVersion;
+    }
+    
+    public String getEmbedCipher() {
+        return embedCipher;
+    }
+    
+    public void setEmbedCipher(String embedCipher) {
+        this.embedCipher = embedCipher;
+    }
+    
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+    
+    public void setKdfIterations(int kdfIterations) {
+        this.kdfIterations = kdfIterations;
+    }
+    
+    public int getKeyCacheMaxEntries() {
+        return keyCacheMaxEntries;
+    }
+    
+    public void setKeyCacheMaxEntries(int keyCacheMaxEntries) {
+        this.keyCacheMaxEntries = keyCacheMaxEntries;
+    }
+    
+    public int getGrpcPort() {
+        return grpcPort;
+    }
+    
+    public void setGrpcPort(int grpcPort) {
+        this.grpcPort = grpcPort;
+    }
+    
+    public int getGrpcStreamWindow() {
+        return grpcStreamWindow;
+    }
+    
+    public void setGrpcStreamWindow(int grpcStreamWindow) {
+        this.grpcStreamWindow = grpcStreamWindow;
+    }
+}
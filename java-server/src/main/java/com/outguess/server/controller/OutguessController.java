@@ -1,23 +1,38 @@
 package com.outguess.server.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outguess.server.model.BatchDecodeResult;
+import com.outguess.server.model.OutguessCapacityRequest;
+import com.outguess.server.model.OutguessEmbedRequest;
 import com.outguess.server.model.OutguessRequest;
 import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.DecodeMetrics;
+import com.outguess.server.service.OutguessEmbedder;
 import com.outguess.server.service.OutguessService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 /**
  * Outguess REST API控制器
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/api/outguess")
 @CrossOrigin(origins = "*")
@@ -28,6 +43,12 @@ public class OutguessController {
     @Autowired
     private OutguessService outguessService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired(required = false)
+    private DecodeMetrics metrics;
+    
     /**
      * 解码消息 - JSON格式
      */
@@ -48,6 +69,20 @@ public class OutguessController {
         }
     }
     
+    /**
+     * 解码消息 - JSON请求，二进制响应（Accept: application/octet-stream）
+     * 响应体为原始消息字节，元数据在响应头中；失败时返回JSON错误信息
+     */
+    @PostMapping(value = "/decode",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> decodePayload(@Valid @RequestBody OutguessRequest request) {
+        logger.info("收到二进制解码请求，文件名: {}", request.getFilename());
+        
+        return payloadResponse(outguessService.decodePayload(
+            request.getImageData(), request.getPassword(), request.isVerbose()));
+    }
+    
     /**
      * 异步解码消息
      */
@@ -92,19 +127,8 @@ public class OutguessController {
                     OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"));
             }
             
-            // 转换为Base64
-            byte[] fileBytes = file.getBytes();
-            String base64Data = Base64.getEncoder().encodeToString(fileBytes);
-            
-            // 创建请求对象
-            OutguessRequest request = new OutguessRequest();
-            request.setImageData(base64Data);
-            request.setPassword(password);
-            request.setVerbose(verbose);
-            request.setFilename(file.getOriginalFilename());
-            
-            // 执行解码
-            OutguessResponse response = outguessService.decodeMessage(request);
+            // 直接传递文件字节，无需Base64往返
+            OutguessResponse response = outguessService.decode(file.getBytes(), password, verbose);
             
             if (response.isSuccess()) {
                 logger.info("文件上传解码成功，消息长度: {} bytes", response.getMessageSize());
@@ -121,6 +145,162 @@ public class OutguessController {
         }
     }
     
+    /**
+     * 解码消息 - 文件上传，二进制响应
+     */
+    @PostMapping(value = "/decode/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> decodePayloadFromFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+        
+        try {
+            logger.info("收到文件上传二进制解码请求，文件名: {}, 大小: {} bytes",
+                       file.getOriginalFilename(), file.getSize());
+            
+            if (!isJpegFile(file)) {
+                return jsonError(ResponseEntity.badRequest(),
+                    OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"));
+            }
+            
+            return payloadResponse(outguessService.decodePayload(file.getBytes(), password, verbose));
+            
+        } catch (IOException e) {
+            logger.error("处理文件上传时发生错误", e);
+            return jsonError(ResponseEntity.internalServerError(),
+                OutguessResponse.error("UPLOAD_ERROR", "文件处理失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 解码消息 - 原始二进制格式
+     * 请求体即JPEG文件本身，密码通过请求头传递
+     */
+    @PostMapping(value = "/decode/raw",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.IMAGE_JPEG_VALUE},
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OutguessResponse> decodeMessageFromBytes(
+            InputStream body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+        
+        logger.info("收到原始二进制解码请求");
+        
+        OutguessResponse response = outguessService.decode(body, password, verbose);
+        
+        if (response.isSuccess()) {
+            logger.info("原始二进制解码成功，消息长度: {} bytes", response.getMessageSize());
+            return ResponseEntity.ok(response);
+        } else {
+            logger.warn("原始二进制解码失败: {}", response.getErrorMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 解码消息 - 原始二进制请求和响应
+     */
+    @PostMapping(value = "/decode/raw",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.IMAGE_JPEG_VALUE},
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> decodePayloadFromBytes(
+            InputStream body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+        
+        logger.info("收到原始二进制解码请求（二进制响应）");
+        
+        return payloadResponse(outguessService.decodePayload(body, password, verbose));
+    }
+    
+    /**
+     * 嵌入消息 - JSON格式
+     * 成功时直接返回嵌入后的JPEG，失败时返回JSON错误信息
+     */
+    @PostMapping(value = "/embed",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> embedMessage(@Valid @RequestBody OutguessEmbedRequest request) {
+        logger.info("收到嵌入请求，文件名: {}", request.getFilename());
+        
+        return embedResponse(outguessService.embedMessage(
+            request.getImageData(), request.getMessage(), request.getPassword()));
+    }
+    
+    /**
+     * 嵌入消息 - 文件上传格式
+     */
+    @PostMapping(value = "/embed/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> embedMessageToFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("message") String message,
+            @RequestParam(value = "password", required = false) String password) {
+        
+        try {
+            logger.info("收到文件上传嵌入请求，文件名: {}, 大小: {} bytes",
+                       file.getOriginalFilename(), file.getSize());
+            
+            if (!isJpegFile(file)) {
+                return ResponseEntity.badRequest().body(
+                    OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"));
+            }
+            
+            return embedResponse(outguessService.embedMessage(file.getBytes(), message, password));
+            
+        } catch (IOException e) {
+            logger.error("处理文件上传时发生错误", e);
+            return ResponseEntity.internalServerError().body(
+                OutguessResponse.error("UPLOAD_ERROR", "文件处理失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 批量解码 - 多文件上传
+     * 结果以NDJSON流式返回，每解码完一个图像输出一行，单个图像失败不影响其余图像
+     */
+    @PostMapping(value = "/decode/batch",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> decodeBatchFromFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+        
+        logger.info("收到批量解码请求，文件数: {}", files.size());
+        
+        Iterator<OutguessService.BatchItem> items = files.stream()
+            .map(file -> {
+                try {
+                    return new OutguessService.BatchItem(file.getOriginalFilename(), file.getBytes());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })
+            .iterator();
+        return streamBatch(sink -> outguessService.decodeBatch(items, password, verbose, sink));
+    }
+    
+    /**
+     * 批量解码 - ZIP压缩包
+     * 请求体为包含JPEG图像的ZIP文件，边读取边解码，密码通过请求头传递
+     */
+    @PostMapping(value = "/decode/batch",
+                 consumes = "application/zip",
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> decodeBatchFromArchive(
+            InputStream body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+        
+        logger.info("收到批量解码请求（ZIP压缩包）");
+        
+        return streamBatch(sink -> outguessService.decodeBatchArchive(body, password, verbose, sink));
+    }
+    
     /**
      * 检查隐藏数据
      */
@@ -141,6 +321,58 @@ public class OutguessController {
         }
     }
     
+    /**
+     * 估算图像容量 - JSON格式
+     */
+    @PostMapping(value = "/capacity",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OutguessResponse> estimateCapacity(@Valid @RequestBody OutguessCapacityRequest request) {
+        logger.info("收到容量估算请求，文件名: {}", request.getFilename());
+        
+        return capacityResponse(outguessService.estimateCapacity(
+            request.getImageData(), request.getCompressionResistance(), request.getQuality()));
+    }
+    
+    /**
+     * 估算图像容量 - 文件上传格式
+     */
+    @PostMapping(value = "/capacity/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OutguessResponse> estimateCapacityForFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "compressionResistance", defaultValue = "5") int compressionResistance,
+            @RequestParam(value = "quality", defaultValue = "85") int quality) {
+        
+        try {
+            logger.info("收到文件上传容量估算请求，文件名: {}, 大小: {} bytes",
+                       file.getOriginalFilename(), file.getSize());
+            
+            if (!isJpegFile(file)) {
+                return ResponseEntity.badRequest().body(
+                    OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"));
+            }
+            
+            return capacityResponse(outguessService.estimateCapacity(file.getBytes(), compressionResistance, quality));
+            
+        } catch (IOException e) {
+            logger.error("处理文件上传时发生错误", e);
+            return ResponseEntity.internalServerError().body(
+                OutguessResponse.error("UPLOAD_ERROR", "文件处理失败: " + e.getMessage()));
+        }
+    }
+    
+    private ResponseEntity<OutguessResponse> capacityResponse(OutguessResponse response) {
+        if (response.isSuccess()) {
+            logger.info("容量估算完成，最大消息 {} bytes", response.getMessageSize());
+            return ResponseEntity.ok(response);
+        } else {
+            logger.warn("容量估算失败: {}", response.getErrorMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     /**
      * 健康检查
      */
@@ -170,6 +402,87 @@ public class OutguessController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * 二进制解码成功时直接写出消息字节，元数据放在响应头中
+     */
+    private ResponseEntity<?> payloadResponse(OutguessService.PayloadResult result) {
+        OutguessResponse response = result.response();
+        if (!response.isSuccess()) {
+            logger.warn("二进制解码失败: {}", response.getErrorMessage());
+            return jsonError(ResponseEntity.badRequest(), response);
+        }
+        
+        // 二进制响应体不经过ResponseMetricsAdvice，在此计数
+        if (metrics != null) {
+            metrics.countResponse(response);
+        }
+        logger.info("二进制解码成功，消息长度: {} bytes", response.getMessageSize());
+        OutguessResponse.ResponseMetadata metadata = response.getMetadata();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header("X-Outguess-Message-Size", Integer.toString(response.getMessageSize()))
+            .header("X-Outguess-Verified", Boolean.toString(Boolean.TRUE.equals(response.getVerified())))
+            .header("X-Outguess-Processing-Time", Long.toString(response.getProcessingTime()))
+            .header("X-Outguess-Cached", Boolean.toString(metadata != null && Boolean.TRUE.equals(metadata.getCached())))
+            .body(result.payload());
+    }
+    
+    /**
+     * 错误响应显式使用JSON，不受请求的Accept影响
+     */
+    private static ResponseEntity<?> jsonError(ResponseEntity.BodyBuilder builder, OutguessResponse response) {
+        return builder.contentType(MediaType.APPLICATION_JSON).body(response);
+    }
+    
+    /**
+     * 嵌入成功时返回JPEG，嵌入统计放在响应头中
+     */
+    private ResponseEntity<?> embedResponse(OutguessEmbedder.EmbedResult result) {
+        if (!result.isSuccess()) {
+            logger.warn("嵌入失败: {}", result.getErrorMessage());
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(OutguessResponse.error(result.getErrorCode(), result.getErrorMessage()));
+        }
+        
+        logger.info("嵌入成功，嵌入 {} bytes", result.getEmbeddedBytes());
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_JPEG)
+            .header("X-Outguess-Embedded-Bytes", Integer.toString(result.getEmbeddedBytes()))
+            .header("X-Outguess-Changed-Coefficients", Integer.toString(result.getChangedCoefficients()))
+            .header("X-Outguess-Processing-Time", Long.toString(result.getProcessingTime()))
+            .body(result.getImageData());
+    }
+    
+    /**
+     * 把批量解码结果逐行写出为NDJSON，每行写完立即flush
+     */
+    private ResponseEntity<StreamingResponseBody> streamBatch(ToIntFunction<Consumer<BatchDecodeResult>> batch) {
+        StreamingResponseBody body = out -> {
+            int count;
+            try {
+                count = batch.applyAsInt(result -> {
+                    if (metrics != null) {
+                        metrics.countResponse(result.getResponse());
+                    }
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            logger.info("批量解码完成，共 {} 个图像", count);
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+    
     /**
      * 验证是否为JPEG文件
      */
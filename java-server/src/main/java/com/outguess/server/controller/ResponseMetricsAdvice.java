@@ -0,0 +1,39 @@
+package com.outguess.server.controller;
+
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.DecodeMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 按errorCode统计所有写出的OutguessResponse（包括全局异常处理器生成的错误响应）
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestControllerAdvice
+public class ResponseMetricsAdvice implements ResponseBodyAdvice<Object> {
+    
+    @Autowired(required = false)
+    private DecodeMetrics metrics;
+    
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return metrics != null;
+    }
+    
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof OutguessResponse outguessResponse) {
+            metrics.countResponse(outguessResponse);
+        }
+        return body;
+    }
+}
@@ -3,8 +3,10 @@ package com.outguess.server.exception;
 import com.outguess.server.model.OutguessResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,6 +19,7 @@ import java.util.Map;
 /**
  * 全局异常处理器
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     
@@ -42,6 +45,26 @@ public class GlobalExceptionHandler {
             OutguessResponse.error("VALIDATION_ERROR", "参数验证失败: " + errors.toString()));
     }
     
+    /**
+     * 处理请求体无法解析的异常（包括imageData在流式解码时被拒绝）
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<OutguessResponse> handleMessageNotReadable(HttpMessageNotReadableException ex) {
+        if (ex.getMostSpecificCause() instanceof ImageDataException imageError) {
+            logger.warn("图像数据被拒绝: {}", imageError.getOriginalMessage());
+            
+            HttpStatus status = "FILE_TOO_LARGE".equals(imageError.getErrorCode())
+                ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(status).body(
+                OutguessResponse.error(imageError.getErrorCode(), imageError.getOriginalMessage()));
+        }
+        
+        logger.warn("请求体格式错误: {}", ex.getMessage());
+        
+        return ResponseEntity.badRequest().body(
+            OutguessResponse.error("INVALID_REQUEST", "请求体格式错误"));
+    }
+    
     /**
      * 处理文件上传大小超限异常
      */
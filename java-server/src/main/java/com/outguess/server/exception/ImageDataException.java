@@ -0,0 +1,21 @@
+package com.outguess.server.exception;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * 图像数据在反序列化阶段被拒绝（格式错误或超出大小限制）
+ * 继承JsonMappingException以便由Jackson原样抛出，再由全局异常处理器转换为错误响应
+ */
+public class ImageDataException extends JsonMappingException {
+
+    private final String errorCode;
+
+    public ImageDataException(String errorCode, String message) {
+        super(null, message);
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,36 @@
+package com.outguess.server.jpeg;
+
+/**
+ * DCT系数存储
+ * 小图像使用堆内数组，超大图像可溢出到内存映射的临时文件，读取方通过统一接口访问而无需拷贝
+ */
+public interface CoefficientStore extends AutoCloseable {
+
+    /**
+     * 系数总数
+     */
+    int size();
+
+    short get(int index);
+
+    void set(int index, short value);
+
+    /**
+     * 写入一个完整的块（64个系数），offset为块首系数的下标
+     */
+    void putBlock(int offset, short[] block);
+
+    /**
+     * 释放底层资源（映射文件等）
+     */
+    @Override
+    void close();
+
+    /**
+     * 按系数数量创建存储
+     */
+    @FunctionalInterface
+    interface Factory {
+        CoefficientStore create(int size) throws java.io.IOException;
+    }
+}
@@ -0,0 +1,304 @@
+package com.outguess.server.jpeg;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 基线JPEG熵解码器
+ * 把量化后的系数逐块写入系数存储，不做反量化和IDCT
+ */
+final class EntropyDecoder {
+
+    /** Z字形序号 -> 块内自然顺序下标 */
+    static final int[] ZIGZAG_TO_NATURAL = {
+         0,  1,  8, 16,  9,  2,  3, 10,
+        17, 24, 32, 25, 18, 11,  4,  5,
+        12, 19, 26, 33, 40, 48, 41, 34,
+        27, 20, 13,  6,  7, 14, 21, 28,
+        35, 42, 49, 56, 57, 50, 43, 36,
+        29, 22, 15, 23, 30, 37, 44, 51,
+        58, 59, 52, 45, 38, 31, 39, 46,
+        53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    /**
+     * 扫描中的一个分量及其Huffman表
+     */
+    static final class ScanComponent {
+        final JpegImage.Component component;
+        final HuffmanTable dcTable;
+        final HuffmanTable acTable;
+        int dcPredictor;
+
+        ScanComponent(JpegImage.Component component, HuffmanTable dcTable, HuffmanTable acTable) {
+            this.component = component;
+            this.dcTable = dcTable;
+            this.acTable = acTable;
+        }
+
+        /**
+         * 复制出DC预测值为0的副本，供并行解码的各个区间独立使用
+         */
+        ScanComponent fresh() {
+            return new ScanComponent(component, dcTable, acTable);
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int limit;
+    private final short[] block = new short[JpegImage.BLOCK_SIZE];
+    private int pos;
+    private long bitBuffer;
+    private int bitCount;
+    private boolean markerHit;
+
+    EntropyDecoder(ByteBuffer data, int start) {
+        this.data = data;
+        this.limit = data.limit();
+        this.pos = start;
+    }
+
+    /**
+     * 扫描中的MCU总数：非交织扫描每个块就是一个MCU，只编码实际覆盖图像的块
+     */
+    static int totalMcus(ScanComponent[] scan, int mcusPerLine, int mcusPerColumn) {
+        if (scan.length == 1) {
+            JpegImage.Component c = scan[0].component;
+            return c.usedBlocksPerLine * c.usedBlocksPerColumn;
+        }
+        return mcusPerLine * mcusPerColumn;
+    }
+
+    /**
+     * 解码一个扫描段，返回扫描结束后下一个标记的位置
+     */
+    int decodeScan(ScanComponent[] scan, int mcusPerLine, int mcusPerColumn,
+                   int restartInterval, CoefficientStore out) throws JpegFormatException {
+        decodeMcus(scan, mcusPerLine, 0, totalMcus(scan, mcusPerLine, mcusPerColumn), restartInterval, out);
+        return findNextMarker();
+    }
+
+    /**
+     * 解码 [firstMcu, endMcu) 范围内的MCU
+     * 解码器需从firstMcu所在重启区间的起点开始读取，firstMcu必须是重启间隔的整数倍
+     */
+    void decodeMcus(ScanComponent[] scan, int mcusPerLine, int firstMcu, int endMcu,
+                    int restartInterval, CoefficientStore out) throws JpegFormatException {
+        for (int mcu = firstMcu; mcu < endMcu; mcu++) {
+            if (restartInterval > 0 && mcu > firstMcu && mcu % restartInterval == 0) {
+                processRestart(scan);
+            }
+
+            if (scan.length == 1) {
+                // 非交织扫描：每个MCU就是一个块
+                ScanComponent sc = scan[0];
+                JpegImage.Component c = sc.component;
+                int row = mcu / c.usedBlocksPerLine;
+                int col = mcu % c.usedBlocksPerLine;
+                decodeBlock(sc, out, c.blockOffset(row, col));
+            } else {
+                int mcuRow = mcu / mcusPerLine;
+                int mcuCol = mcu % mcusPerLine;
+                for (ScanComponent sc : scan) {
+                    JpegImage.Component c = sc.component;
+                    for (int v = 0; v < c.vSampling; v++) {
+                        int row = mcuRow * c.vSampling + v;
+                        for (int h = 0; h < c.hSampling; h++) {
+                            int col = mcuCol * c.hSampling + h;
+                            decodeBlock(sc, out, c.blockOffset(row, col));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 预扫描熵编码段中的RSTn标记，返回每个重启区间的起始位置，最后一项为扫描结束后下一个标记的位置
+     * 标记数量或序号与预期不符时返回null，由调用方退回顺序解码
+     */
+    static int[] findRestartIntervals(ByteBuffer data, int start, int intervals) {
+        int limit = data.limit();
+        int[] starts = new int[intervals + 1];
+        starts[0] = start;
+        int found = 1;
+        int p = start;
+        int end = limit;
+        while (p + 1 < limit) {
+            if ((data.get(p) & 0xFF) != 0xFF) {
+                p++;
+                continue;
+            }
+            int next = data.get(p + 1) & 0xFF;
+            if (next == 0x00) {
+                p += 2;
+            } else if (next == 0xFF) {
+                p++;
+            } else if (next >= 0xD0 && next <= 0xD7) {
+                if (found == intervals || next - 0xD0 != ((found - 1) & 7)) {
+                    return null;
+                }
+                starts[found++] = p + 2;
+                p += 2;
+            } else {
+                end = p;
+                break;
+            }
+        }
+        if (found != intervals) {
+            return null;
+        }
+        starts[intervals] = end;
+        return starts;
+    }
+
+    /**
+     * 解码一个8x8块，系数按自然顺序写入存储中 offset 开始的64个位置
+     */
+    private void decodeBlock(ScanComponent sc, CoefficientStore out, int offset) throws JpegFormatException {
+        int t = decodeHuffman(sc.dcTable);
+        int diff = t == 0 ? 0 : extend(receive(t), t);
+        sc.dcPredictor += diff;
+        block[0] = (short) sc.dcPredictor;
+
+        HuffmanTable ac = sc.acTable;
+        for (int k = 1; k < 64; k++) {
+            int rs = decodeHuffman(ac);
+            int r = rs >> 4;
+            int s = rs & 15;
+            if (s != 0) {
+                k += r;
+                if (k > 63) {
+                    throw new JpegFormatException("AC系数游程越界");
+                }
+                block[ZIGZAG_TO_NATURAL[k]] = (short) extend(receive(s), s);
+            } else {
+                if (r != 15) {
+                    break; // EOB
+                }
+                k += 15; // ZRL
+            }
+        }
+
+        out.putBlock(offset, block);
+        Arrays.fill(block, (short) 0);
+    }
+
+    private int decodeHuffman(HuffmanTable table) throws JpegFormatException {
+        if (bitCount < 32) {
+            fill();
+        }
+        int entry = table.lookup[peek(HuffmanTable.LOOKAHEAD_BITS)];
+        if (entry != 0) {
+            bitCount -= entry >> 8;
+            return entry & 0xFF;
+        }
+
+        // 慢速路径：码长超过查找表位数
+        int len = HuffmanTable.LOOKAHEAD_BITS + 1;
+        int code = peek(len);
+        while (code > table.maxCode[len]) {
+            len++;
+            code = peek(len);
+        }
+        if (len > 16) {
+            throw new JpegFormatException("无效的Huffman码字");
+        }
+        bitCount -= len;
+        return table.values[code + table.valOffset[len]] & 0xFF;
+    }
+
+    private int receive(int n) {
+        if (bitCount < n) {
+            fill();
+        }
+        int value = peek(n);
+        bitCount -= n;
+        return value;
+    }
+
+    private static int extend(int value, int bits) {
+        return value < (1 << (bits - 1)) ? value - (1 << bits) + 1 : value;
+    }
+
+    private int peek(int n) {
+        return (int) (bitBuffer >>> (bitCount - n)) & ((1 << n) - 1);
+    }
+
+    /**
+     * 填充位缓冲区；遇到标记后以0补齐，由调用方决定如何处理标记
+     */
+    private void fill() {
+        while (bitCount <= 56) {
+            int b = 0;
+            if (!markerHit) {
+                if (pos >= limit) {
+                    markerHit = true; // 数据被截断
+                } else {
+                    b = data.get(pos) & 0xFF;
+                    if (b == 0xFF) {
+                        int next = pos + 1 < limit ? data.get(pos + 1) & 0xFF : 0xD9;
+                        if (next == 0x00) {
+                            pos += 2; // 字节填充 FF00
+                        } else {
+                            markerHit = true;
+                            b = 0;
+                        }
+                    } else {
+                        pos++;
+                    }
+                }
+            }
+            bitBuffer = (bitBuffer << 8) | b;
+            bitCount += 8;
+        }
+    }
+
+    /**
+     * 处理RSTn：丢弃剩余位、越过标记并重置DC预测值
+     */
+    private void processRestart(ScanComponent[] scan) {
+        bitBuffer = 0;
+        bitCount = 0;
+        markerHit = false;
+
+        int marker = findNextMarker();
+        if (marker + 1 < limit) {
+            int code = data.get(marker + 1) & 0xFF;
+            if (code >= 0xD0 && code <= 0xD7) {
+                pos = marker + 2;
+            } else {
+                // 缺少RST标记，后续块按0处理
+                pos = marker;
+                markerHit = true;
+            }
+        } else {
+            pos = limit;
+        }
+
+        for (ScanComponent sc : scan) {
+            sc.dcPredictor = 0;
+        }
+    }
+
+    /**
+     * 从当前位置查找下一个标记（跳过FF00填充字节）
+     */
+    private int findNextMarker() {
+        int p = pos;
+        while (p + 1 < limit) {
+            if ((data.get(p) & 0xFF) == 0xFF) {
+                int next = data.get(p + 1) & 0xFF;
+                if (next != 0x00 && next != 0xFF) {
+                    return p;
+                }
+                if (next == 0x00) {
+                    p += 2;
+                    continue;
+                }
+            }
+            p++;
+        }
+        return limit;
+    }
+}
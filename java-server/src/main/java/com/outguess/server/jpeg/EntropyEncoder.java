@@ -0,0 +1,162 @@
+package com.outguess.server.jpeg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 基线JPEG熵编码器
+ * 用扫描原有的Huffman表把量化系数重新编码为熵编码段，块的遍历顺序与EntropyDecoder一致；
+ * 不做DCT和量化，系数值不变的部分编码结果与原图逐位相同
+ */
+final class EntropyEncoder {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered;
+    private long bitBuffer;
+    private int bitCount;
+
+    EntropyEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 编码一个扫描的全部MCU，按需插入RSTn标记，结束时以1补齐最后一个字节
+     */
+    void encodeScan(JpegImage.Scan scan, int mcusPerLine, int mcusPerColumn, CoefficientStore in)
+            throws IOException {
+        EntropyDecoder.ScanComponent[] components = new EntropyDecoder.ScanComponent[scan.components.length];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = scan.components[i].fresh();
+        }
+        int restartInterval = scan.restartInterval;
+        int totalMcus = EntropyDecoder.totalMcus(components, mcusPerLine, mcusPerColumn);
+
+        for (int mcu = 0; mcu < totalMcus; mcu++) {
+            if (restartInterval > 0 && mcu > 0 && mcu % restartInterval == 0) {
+                padToByte();
+                writeMarker(0xD0 + ((mcu / restartInterval - 1) & 7));
+                for (EntropyDecoder.ScanComponent sc : components) {
+                    sc.dcPredictor = 0;
+                }
+            }
+
+            if (components.length == 1) {
+                EntropyDecoder.ScanComponent sc = components[0];
+                JpegImage.Component c = sc.component;
+                int row = mcu / c.usedBlocksPerLine;
+                int col = mcu % c.usedBlocksPerLine;
+                encodeBlock(sc, in, c.blockOffset(row, col));
+            } else {
+                int mcuRow = mcu / mcusPerLine;
+                int mcuCol = mcu % mcusPerLine;
+                for (EntropyDecoder.ScanComponent sc : components) {
+                    JpegImage.Component c = sc.component;
+                    for (int v = 0; v < c.vSampling; v++) {
+                        int row = mcuRow * c.vSampling + v;
+                        for (int h = 0; h < c.hSampling; h++) {
+                            int col = mcuCol * c.hSampling + h;
+                            encodeBlock(sc, in, c.blockOffset(row, col));
+                        }
+                    }
+                }
+            }
+        }
+        padToByte();
+        flush();
+    }
+
+    private void encodeBlock(EntropyDecoder.ScanComponent sc, CoefficientStore in, int offset)
+            throws IOException {
+        int dc = in.get(offset);
+        int diff = dc - sc.dcPredictor;
+        sc.dcPredictor = dc;
+        int size = category(diff);
+        writeSymbol(sc.dcTable, size);
+        writeValue(diff, size);
+
+        HuffmanTable ac = sc.acTable;
+        int run = 0;
+        for (int k = 1; k < 64; k++) {
+            int c = in.get(offset + EntropyDecoder.ZIGZAG_TO_NATURAL[k]);
+            if (c == 0) {
+                run++;
+                continue;
+            }
+            while (run > 15) {
+                writeSymbol(ac, 0xF0); // ZRL
+                run -= 16;
+            }
+            size = category(c);
+            writeSymbol(ac, (run << 4) | size);
+            writeValue(c, size);
+            run = 0;
+        }
+        if (run > 0) {
+            writeSymbol(ac, 0x00); // EOB
+        }
+    }
+
+    /**
+     * 数值所属的幅度类别（表示|value|所需的位数）
+     */
+    private static int category(int value) {
+        return 32 - Integer.numberOfLeadingZeros(Math.abs(value));
+    }
+
+    private void writeSymbol(HuffmanTable table, int symbol) throws IOException {
+        int length = table.codeLengths[symbol];
+        if (length == 0) {
+            throw new JpegFormatException("Huffman表中缺少符号: 0x" + Integer.toHexString(symbol));
+        }
+        writeBits(table.codes[symbol], length);
+    }
+
+    /**
+     * 按JPEG规则写出幅度位：负数写出 value-1 的低size位
+     */
+    private void writeValue(int value, int size) throws IOException {
+        if (size > 0) {
+            writeBits(value < 0 ? value - 1 : value, size);
+        }
+    }
+
+    private void writeBits(int bits, int length) throws IOException {
+        bitBuffer = (bitBuffer << length) | (bits & ((1L << length) - 1));
+        bitCount += length;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            int b = (int) (bitBuffer >>> bitCount) & 0xFF;
+            writeByte(b);
+            if (b == 0xFF) {
+                writeByte(0x00); // 字节填充
+            }
+        }
+    }
+
+    private void padToByte() throws IOException {
+        if (bitCount > 0) {
+            writeBits(0x7F, 8 - bitCount);
+        }
+        bitBuffer = 0;
+    }
+
+    private void writeMarker(int marker) throws IOException {
+        writeByte(0xFF);
+        writeByte(marker);
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (buffered == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[buffered++] = (byte) b;
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer, 0, buffered);
+        buffered = 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.outguess.server.jpeg;
+
+import java.util.function.Consumer;
+
+/**
+ * 堆内系数存储
+ * 底层数组可以比系数数量更长（来自缓冲池的按尺寸分级数组），关闭时通过回调归还
+ */
+public final class HeapCoefficientStore implements CoefficientStore {
+
+    private final short[] coefficients;
+    private final int size;
+    private Consumer<short[]> onClose;
+
+    public HeapCoefficientStore(int size) {
+        this(new short[size]);
+    }
+
+    public HeapCoefficientStore(short[] coefficients) {
+        this(coefficients, coefficients.length, null);
+    }
+
+    /**
+     * 使用已有数组的前size个元素，onClose在第一次关闭时收到该数组
+     */
+    public HeapCoefficientStore(short[] coefficients, int size, Consumer<short[]> onClose) {
+        if (size > coefficients.length) {
+            throw new IllegalArgumentException("系数数组长度不足: " + coefficients.length + " < " + size);
+        }
+        this.coefficients = coefficients;
+        this.size = size;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public short get(int index) {
+        return coefficients[index];
+    }
+
+    @Override
+    public void set(int index, short value) {
+        coefficients[index] = value;
+    }
+
+    @Override
+    public void putBlock(int offset, short[] block) {
+        System.arraycopy(block, 0, coefficients, offset, JpegImage.BLOCK_SIZE);
+    }
+
+    /**
+     * 底层数组（用于需要直接遍历的场景），有效长度为 size()
+     */
+    public short[] array() {
+        return coefficients;
+    }
+
+    @Override
+    public void close() {
+        Consumer<short[]> release = onClose;
+        onClose = null;
+        if (release != null) {
+            release.accept(coefficients);
+        }
+    }
+}
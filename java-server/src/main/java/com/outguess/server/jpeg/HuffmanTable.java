@@ -0,0 +1,68 @@
+package com.outguess.server.jpeg;
+
+/**
+ * 表驱动的Huffman解码表
+ * 长度不超过LOOKAHEAD_BITS的码字通过一次查表解码，较长码字回退到maxcode逐位比较；
+ * 同时保存每个符号的码字，供重新编码时使用原始码表
+ */
+final class HuffmanTable {
+
+    static final int LOOKAHEAD_BITS = 9;
+
+    /** 每个条目为 (码长 << 8) | 符号，0表示需要走慢速路径 */
+    final int[] lookup = new int[1 << LOOKAHEAD_BITS];
+
+    /** maxCode[l] 为长度l的最大码字，-1表示不存在该长度 */
+    final int[] maxCode = new int[18];
+    final int[] valOffset = new int[17];
+    final byte[] values;
+
+    /** 按符号索引的码字和码长，码长为0表示表中没有该符号 */
+    final int[] codes = new int[256];
+    final byte[] codeLengths = new byte[256];
+
+    HuffmanTable(byte[] counts, byte[] values) throws JpegFormatException {
+        this.values = values;
+
+        int code = 0;
+        int k = 0;
+        for (int len = 1; len <= 16; len++) {
+            int count = counts[len - 1] & 0xFF;
+            valOffset[len] = k - code;
+            if (count == 0) {
+                maxCode[len] = -1;
+            } else {
+                for (int i = 0; i < count; i++, k++, code++) {
+                    // 码字必须在len位的码空间内，先检查再写查找表，否则越界的码字会写出lookup
+                    if (code >= (1 << len)) {
+                        throw new JpegFormatException("Huffman表定义无效");
+                    }
+                    int symbol = values[k] & 0xFF;
+                    codes[symbol] = code;
+                    codeLengths[symbol] = (byte) len;
+                    if (len <= LOOKAHEAD_BITS) {
+                        int shift = LOOKAHEAD_BITS - len;
+                        int base = code << shift;
+                        for (int fill = 0; fill < (1 << shift); fill++) {
+                            lookup[base + fill] = (len << 8) | symbol;
+                        }
+                    }
+                }
+                maxCode[len] = code - 1;
+            }
+            code <<= 1;
+        }
+        maxCode[17] = Integer.MAX_VALUE; // 哨兵，保证慢速路径终止
+    }
+
+    /**
+     * 统计DHT中各码长的码字总数
+     */
+    static int valueCount(byte[] counts) {
+        int total = 0;
+        for (byte c : counts) {
+            total += c & 0xFF;
+        }
+        return total;
+    }
+}
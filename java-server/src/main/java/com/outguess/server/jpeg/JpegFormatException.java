@@ -0,0 +1,13 @@
+package com.outguess.server.jpeg;
+
+import java.io.IOException;
+
+/**
+ * JPEG格式错误（损坏的数据或不支持的编码类型）
+ */
+public class JpegFormatException extends IOException {
+
+    public JpegFormatException(String message) {
+        super(message);
+    }
+}
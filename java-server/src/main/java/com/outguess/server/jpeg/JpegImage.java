@@ -0,0 +1,130 @@
+package com.outguess.server.jpeg;
+
+import java.util.List;
+
+/**
+ * 解析后的JPEG图像：帧信息 + 量化后的DCT系数
+ *
+ * 系数按分量依次存放，每个分量内部按块行优先排列，每块64个系数为自然顺序（非Z字形），
+ * 因此 index % 64 == 0 的位置恰好是DC系数。
+ */
+public final class JpegImage implements AutoCloseable {
+
+    public static final int BLOCK_SIZE = 64;
+
+    private final int width;
+    private final int height;
+    private final int precision;
+    private final Component[] components;
+    private final int[][] quantTables;
+    private final int restartInterval;
+    private final CoefficientStore coefficients;
+    final int mcusPerLine;
+    final int mcusPerColumn;
+    /** 各扫描的熵编码段位置和所用Huffman表，供重新编码使用 */
+    final List<Scan> scans;
+
+    JpegImage(int width, int height, int precision, Component[] components,
+              int[][] quantTables, int restartInterval, CoefficientStore coefficients,
+              int mcusPerLine, int mcusPerColumn, List<Scan> scans) {
+        this.width = width;
+        this.height = height;
+        this.precision = precision;
+        this.components = components;
+        this.quantTables = quantTables;
+        this.restartInterval = restartInterval;
+        this.coefficients = coefficients;
+        this.mcusPerLine = mcusPerLine;
+        this.mcusPerColumn = mcusPerColumn;
+        this.scans = scans;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getPrecision() { return precision; }
+    public int getRestartInterval() { return restartInterval; }
+    public CoefficientStore getCoefficients() { return coefficients; }
+
+    public int getComponentCount() {
+        return components.length;
+    }
+
+    public Component getComponent(int index) {
+        return components[index];
+    }
+
+    /**
+     * 返回指定分量使用的量化表（自然顺序），未定义时返回null
+     */
+    public int[] getQuantTable(int componentIndex) {
+        return quantTables[components[componentIndex].quantTableId];
+    }
+
+    @Override
+    public void close() {
+        coefficients.close();
+    }
+
+    /**
+     * 一个扫描：熵编码数据位于原始数据的 [dataStart, dataEnd)，dataEnd为扫描后下一个标记的位置
+     */
+    static final class Scan {
+        final int dataStart;
+        final int dataEnd;
+        final EntropyDecoder.ScanComponent[] components;
+        final int restartInterval;
+
+        Scan(int dataStart, int dataEnd, EntropyDecoder.ScanComponent[] components, int restartInterval) {
+            this.dataStart = dataStart;
+            this.dataEnd = dataEnd;
+            this.components = components;
+            this.restartInterval = restartInterval;
+        }
+    }
+
+    /**
+     * 图像分量（Y/Cb/Cr等）
+     */
+    public static final class Component {
+        final int id;
+        final int hSampling;
+        final int vSampling;
+        final int quantTableId;
+        /** 按MCU补齐后的块网格尺寸 */
+        final int blocksPerLine;
+        final int blocksPerColumn;
+        /** 实际覆盖图像的块数（非交织扫描只编码这些块） */
+        final int usedBlocksPerLine;
+        final int usedBlocksPerColumn;
+        /** 该分量第一个系数在系数数组中的下标 */
+        final int offset;
+
+        Component(int id, int hSampling, int vSampling, int quantTableId,
+                  int blocksPerLine, int blocksPerColumn,
+                  int usedBlocksPerLine, int usedBlocksPerColumn, int offset) {
+            this.id = id;
+            this.hSampling = hSampling;
+            this.vSampling = vSampling;
+            this.quantTableId = quantTableId;
+            this.blocksPerLine = blocksPerLine;
+            this.blocksPerColumn = blocksPerColumn;
+            this.usedBlocksPerLine = usedBlocksPerLine;
+            this.usedBlocksPerColumn = usedBlocksPerColumn;
+            this.offset = offset;
+        }
+
+        public int getId() { return id; }
+        public int getHSampling() { return hSampling; }
+        public int getVSampling() { return vSampling; }
+        public int getBlocksPerLine() { return blocksPerLine; }
+        public int getBlocksPerColumn() { return blocksPerColumn; }
+        public int getOffset() { return offset; }
+
+        /**
+         * 块(row, col)第一个系数的下标
+         */
+        public int blockOffset(int row, int col) {
+            return offset + (row * blocksPerLine + col) * BLOCK_SIZE;
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.outguess.server.jpeg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 基线JPEG解析器
+ * 一次顺序扫描解析 SOF/DHT/DQT/DRI/SOS 并熵解码出量化DCT系数，不生成任何像素数据
+ */
+public final class JpegParser {
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+    private static final int DQT = 0xDB;
+    private static final int DRI = 0xDD;
+    private static final int DHT = 0xC4;
+    private static final int SOF0 = 0xC0;
+    private static final int SOF1 = 0xC1;
+
+    /** 并行解码时每个任务至少包含的MCU数，太小的图像不值得拆分 */
+    private static final int MIN_MCUS_PER_TASK = 256;
+
+    private final ByteBuffer data;
+    private final int limit;
+    private final CoefficientStore.Factory storeFactory;
+    private final Executor executor;
+    /** 大于0时为抽样模式：只解码第一个扫描中约这么多个块 */
+    private final int sampleBlocks;
+    private int pos;
+
+    private final HuffmanTable[] dcTables = new HuffmanTable[4];
+    private final HuffmanTable[] acTables = new HuffmanTable[4];
+    private final int[][] quantTables = new int[4][];
+    private int restartInterval;
+
+    private int width;
+    private int height;
+    private int precision;
+    private int mcusPerLine;
+    private int mcusPerColumn;
+    private JpegImage.Component[] components;
+    private CoefficientStore coefficients;
+    private final List<JpegImage.Scan> scans = new ArrayList<>();
+
+    private JpegParser(ByteBuffer data, CoefficientStore.Factory storeFactory, Executor executor,
+                       int sampleBlocks) {
+        this.data = data;
+        this.limit = data.limit();
+        this.pos = data.position();
+        this.storeFactory = storeFactory;
+        this.executor = executor;
+        this.sampleBlocks = sampleBlocks;
+    }
+
+    public static JpegImage parse(byte[] jpegData) throws IOException {
+        return parse(ByteBuffer.wrap(jpegData), HeapCoefficientStore::new);
+    }
+
+    /**
+     * 解析JPEG，系数写入由storeFactory按系数数量创建的存储中
+     */
+    public static JpegImage parse(ByteBuffer jpegData, CoefficientStore.Factory storeFactory) throws IOException {
+        return parse(jpegData, storeFactory, null);
+    }
+
+    /**
+     * 同上；executor不为null时，带重启标记（DRI）的扫描按重启区间拆分后并行熵解码
+     */
+    public static JpegImage parse(ByteBuffer jpegData, CoefficientStore.Factory storeFactory,
+                                  Executor executor) throws IOException {
+        JpegParser parser = new JpegParser(jpegData, storeFactory, executor, 0);
+        try {
+            return parser.run();
+        } catch (IOException | RuntimeException e) {
+            if (parser.coefficients != null) {
+                parser.coefficients.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 抽样解析：只熵解码第一个扫描中约targetBlocks个块，用于快速筛查
+     * 有重启标记时从均匀分布的重启区间中抽取，否则只解码扫描开头的MCU。
+     * 返回的存储按解码顺序依次存放各块（每块64个系数，自然顺序），与块在图像中的位置无关；
+     * 图像不足targetBlocks个块时等同于解码整个扫描
+     */
+    public static CoefficientStore sample(ByteBuffer jpegData, int targetBlocks) throws IOException {
+        if (targetBlocks <= 0) {
+            throw new IllegalArgumentException("抽样块数必须大于0: " + targetBlocks);
+        }
+        return new JpegParser(jpegData, null, null, targetBlocks).run().getCoefficients();
+    }
+
+    /**
+     * 计数解析：熵解码全部扫描，但不保存系数，只统计 |c| >= minMagnitude 的AC系数个数
+     * 内存开销与图像大小无关，用于容量估算
+     */
+    public static CoefficientCount count(ByteBuffer jpegData, int minMagnitude) throws IOException {
+        CountingStore store = new CountingStore(minMagnitude);
+        JpegImage image = new JpegParser(jpegData, store::reset, null, 0).run();
+        return new CoefficientCount(image.getWidth(), image.getHeight(), store.size, store.usable);
+    }
+
+    /**
+     * 计数解析的结果：total为系数总数（含按MCU补齐的块），usable为满足阈值的AC系数个数
+     */
+    public record CoefficientCount(int width, int height, long total, long usable) {
+    }
+
+    private JpegImage run() throws IOException {
+        if (limit - pos < 4 || u8(pos) != 0xFF || u8(pos + 1) != SOI) {
+            throw new JpegFormatException("缺少SOI标记");
+        }
+        pos += 2;
+
+        // 抽样模式在第一个扫描之后停止
+        while (sampleBlocks == 0 || scans.isEmpty()) {
+            int marker = nextMarker();
+            if (marker < 0 || marker == EOI) {
+                break;
+            }
+
+            if (marker >= 0xD0 && marker <= 0xD7) {
+                continue; // 扫描外的RST，无长度字段
+            }
+
+            if (pos + 2 > limit) {
+                throw new JpegFormatException("JPEG数据被截断");
+            }
+            int length = u16(pos);
+            int segmentStart = pos + 2;
+            int segmentEnd = pos + length;
+            if (length < 2 || segmentEnd > limit) {
+                throw new JpegFormatException("标记段长度无效: 0x" + Integer.toHexString(marker));
+            }
+
+            switch (marker) {
+                case SOF0:
+                case SOF1:
+                    parseFrame(segmentStart);
+                    pos = segmentEnd;
+                    break;
+                case DHT:
+                    parseHuffmanTables(segmentStart, segmentEnd);
+                    pos = segmentEnd;
+                    break;
+                case DQT:
+                    parseQuantTables(segmentStart, segmentEnd);
+                    pos = segmentEnd;
+                    break;
+                case DRI:
+                    restartInterval = u16(segmentStart);
+                    pos = segmentEnd;
+                    break;
+                case SOS:
+                    pos = decodeScan(segmentStart, segmentEnd);
+                    break;
+                default:
+                    if ((marker >= 0xC2 && marker <= 0xCF) && marker != DHT && marker != 0xC8 && marker != 0xCC) {
+                        throw new JpegFormatException("不支持的JPEG编码类型: SOF" + (marker - 0xC0));
+                    }
+                    pos = segmentEnd; // APPn / COM 等
+                    break;
+            }
+        }
+
+        if (scans.isEmpty()) {
+            throw new JpegFormatException("JPEG中没有扫描数据");
+        }
+
+        return new JpegImage(width, height, precision, components, quantTables,
+            restartInterval, coefficients, mcusPerLine, mcusPerColumn, scans);
+    }
+
+    /**
+     * 查找下一个标记，跳过填充的0xFF；数据结束时返回-1
+     */
+    private int nextMarker() {
+        while (pos + 1 < limit) {
+            if (u8(pos) == 0xFF) {
+                int code = u8(pos + 1);
+                if (code != 0xFF && code != 0x00) {
+                    pos += 2;
+                    return code;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private void parseFrame(int p) throws IOException {
+        if (components != null) {
+            throw new JpegFormatException("重复的SOF标记");
+        }
+        precision = u8(p);
+        height = u16(p + 1);
+        width = u16(p + 3);
+        int count = u8(p + 5);
+        if (width == 0 || height == 0) {
+            throw new JpegFormatException("不支持的图像尺寸: " + width + "x" + height);
+        }
+        if (count < 1 || count > 4) {
+            throw new JpegFormatException("无效的分量数: " + count);
+        }
+
+        int[] ids = new int[count];
+        int[] hs = new int[count];
+        int[] vs = new int[count];
+        int[] tqs = new int[count];
+        int hMax = 1;
+        int vMax = 1;
+        for (int i = 0; i < count; i++) {
+            int q = p + 6 + i * 3;
+            ids[i] = u8(q);
+            hs[i] = u8(q + 1) >> 4;
+            vs[i] = u8(q + 1) & 15;
+            tqs[i] = u8(q + 2) & 3;
+            if (hs[i] < 1 || hs[i] > 4 || vs[i] < 1 || vs[i] > 4) {
+                throw new JpegFormatException("无效的采样因子");
+            }
+            hMax = Math.max(hMax, hs[i]);
+            vMax = Math.max(vMax, vs[i]);
+        }
+
+        mcusPerLine = ceilDiv(width, 8 * hMax);
+        mcusPerColumn = ceilDiv(height, 8 * vMax);
+
+        components = new JpegImage.Component[count];
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            int blocksPerLine = mcusPerLine * hs[i];
+            int blocksPerColumn = mcusPerColumn * vs[i];
+            int usedPerLine = (int) ceilDiv((long) width * hs[i], 8L * hMax);
+            int usedPerColumn = (int) ceilDiv((long) height * vs[i], 8L * vMax);
+            components[i] = new JpegImage.Component(ids[i], hs[i], vs[i], tqs[i],
+                blocksPerLine, blocksPerColumn, usedPerLine, usedPerColumn, (int) offset);
+            offset += (long) blocksPerLine * blocksPerColumn * JpegImage.BLOCK_SIZE;
+            if (offset > Integer.MAX_VALUE - 8) {
+                throw new JpegFormatException("图像过大: " + width + "x" + height);
+            }
+        }
+
+        if (sampleBlocks == 0) {
+            coefficients = storeFactory.create((int) offset);
+        }
+    }
+
+    private void parseHuffmanTables(int p, int end) throws JpegFormatException {
+        while (p < end) {
+            int info = u8(p);
+            int tableClass = info >> 4;
+            int tableId = info & 15;
+            if (tableClass > 1 || tableId > 3 || p + 17 > end) {
+                throw new JpegFormatException("无效的DHT段");
+            }
+
+            byte[] counts = new byte[16];
+            data.get(p + 1, counts);
+            int total = HuffmanTable.valueCount(counts);
+            if (total > 256 || p + 17 + total > end) {
+                throw new JpegFormatException("无效的DHT段");
+            }
+            byte[] values = new byte[total];
+            data.get(p + 17, values);
+
+            HuffmanTable table = new HuffmanTable(counts, values);
+            if (tableClass == 0) {
+                dcTables[tableId] = table;
+            } else {
+                acTables[tableId] = table;
+            }
+            p += 17 + total;
+        }
+    }
+
+    private void parseQuantTables(int p, int end) throws JpegFormatException {
+        while (p < end) {
+            int info = u8(p);
+            int tablePrecision = info >> 4;
+            int tableId = info & 15;
+            int entrySize = tablePrecision == 0 ? 1 : 2;
+            if (tableId > 3 || p + 1 + 64 * entrySize > end) {
+                throw new JpegFormatException("无效的DQT段");
+            }
+
+            int[] table = new int[JpegImage.BLOCK_SIZE];
+            for (int k = 0; k < 64; k++) {
+                int q = p + 1 + k * entrySize;
+                table[EntropyDecoder.ZIGZAG_TO_NATURAL[k]] = entrySize == 1 ? u8(q) : u16(q);
+            }
+            quantTables[tableId] = table;
+            p += 1 + 64 * entrySize;
+        }
+    }
+
+    private int decodeScan(int p, int segmentEnd) throws JpegFormatException {
+        if (components == null) {
+            throw new JpegFormatException("SOS出现在SOF之前");
+        }
+
+        int count = u8(p);
+        if (count < 1 || count > components.length) {
+            throw new JpegFormatException("无效的扫描分量数: " + count);
+        }
+
+        EntropyDecoder.ScanComponent[] scan = new EntropyDecoder.ScanComponent[count];
+        for (int i = 0; i < count; i++) {
+            int id = u8(p + 1 + i * 2);
+            int tables = u8(p + 2 + i * 2);
+            JpegImage.Component component = findComponent(id);
+            HuffmanTable dc = dcTables[(tables >> 4) & 3];
+            HuffmanTable ac = acTables[tables & 3];
+            if (dc == null || ac == null) {
+                throw new JpegFormatException("扫描引用了未定义的Huffman表");
+            }
+            scan[i] = new EntropyDecoder.ScanComponent(component, dc, ac);
+        }
+
+        int spectralStart = u8(p + 1 + count * 2);
+        int spectralEnd = u8(p + 2 + count * 2);
+        if (spectralStart != 0 || spectralEnd != 63) {
+            throw new JpegFormatException("不支持的渐进式扫描");
+        }
+
+        int totalMcus = EntropyDecoder.totalMcus(scan, mcusPerLine, mcusPerColumn);
+        if (sampleBlocks > 0) {
+            coefficients = sampleScan(scan, segmentEnd, totalMcus);
+            scans.add(new JpegImage.Scan(segmentEnd, segmentEnd, scan, restartInterval));
+            return segmentEnd;
+        }
+
+        int dataEnd = -1;
+        if (executor != null && restartInterval > 0 && totalMcus >= 2 * MIN_MCUS_PER_TASK) {
+            int intervals = ceilDiv(totalMcus, restartInterval);
+            int[] starts = intervals > 1 ? EntropyDecoder.findRestartIntervals(data, segmentEnd, intervals) : null;
+            if (starts != null) {
+                decodeIntervalsInParallel(scan, starts, totalMcus);
+                dataEnd = starts[intervals];
+            }
+            // 重启标记缺失或错位时退回顺序解码，由顺序解码器按原方式容错
+        }
+        if (dataEnd < 0) {
+            EntropyDecoder decoder = new EntropyDecoder(data, segmentEnd);
+            dataEnd = decoder.decodeScan(scan, mcusPerLine, mcusPerColumn, restartInterval, coefficients);
+        }
+        scans.add(new JpegImage.Scan(segmentEnd, dataEnd, scan, restartInterval));
+        return dataEnd;
+    }
+
+    /**
+     * 把重启区间平均分给若干任务并行解码
+     * 每个任务从自己第一个区间的起点开始、DC预测值从0开始，写入互不重叠的块；
+     * 最后一个任务在当前线程执行，所有任务结束后才返回（包括出错时），保证系数存储不再被写入
+     */
+    private void decodeIntervalsInParallel(EntropyDecoder.ScanComponent[] scan, int[] starts, int totalMcus)
+            throws JpegFormatException {
+        int intervals = starts.length - 1;
+        int tasks = Math.min(intervals, totalMcus / MIN_MCUS_PER_TASK);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks - 1];
+        for (int t = 0; t < tasks - 1; t++) {
+            int first = (int) ((long) intervals * t / tasks);
+            int end = (int) ((long) intervals * (t + 1) / tasks);
+            futures[t] = CompletableFuture.runAsync(() -> {
+                try {
+                    decodeIntervals(scan, starts, first, end, totalMcus);
+                } catch (JpegFormatException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+
+        Throwable failure = null;
+        try {
+            decodeIntervals(scan, starts, (int) ((long) intervals * (tasks - 1) / tasks), intervals, totalMcus);
+        } catch (JpegFormatException | RuntimeException e) {
+            failure = e;
+        }
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof JpegFormatException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+    }
+
+    /**
+     * 抽样解码当前扫描，块按解码顺序依次写入新数组
+     * 有可定位的重启区间时从中均匀抽取若干完整区间（每个区间从DC预测值0开始独立解码），
+     * 否则解码扫描开头的MCU
+     */
+    private CoefficientStore sampleScan(EntropyDecoder.ScanComponent[] scan, int segmentEnd, int totalMcus)
+            throws JpegFormatException {
+        int blocksPerMcu = 0;
+        for (EntropyDecoder.ScanComponent sc : scan) {
+            blocksPerMcu += scan.length == 1 ? 1 : sc.component.hSampling * sc.component.vSampling;
+        }
+        int targetMcus = (int) Math.min(totalMcus, ceilDiv((long) sampleBlocks, blocksPerMcu));
+
+        int intervals = restartInterval > 0 ? ceilDiv(totalMcus, restartInterval) : 1;
+        int[] starts = intervals > 1 && targetMcus < totalMcus
+            ? EntropyDecoder.findRestartIntervals(data, segmentEnd, intervals) : null;
+        if (starts == null) {
+            SampleStore store = new SampleStore(targetMcus * blocksPerMcu);
+            new EntropyDecoder(data, segmentEnd)
+                .decodeMcus(scan, mcusPerLine, 0, targetMcus, restartInterval, store);
+            return store.toHeapStore();
+        }
+
+        int picks = Math.min(intervals, ceilDiv(targetMcus, restartInterval));
+        int[] picked = new int[picks];
+        int sampledMcus = 0;
+        for (int k = 0; k < picks; k++) {
+            picked[k] = (int) ((long) intervals * k / picks);
+            int firstMcu = picked[k] * restartInterval;
+            sampledMcus += Math.min(restartInterval, totalMcus - firstMcu);
+        }
+        SampleStore store = new SampleStore(sampledMcus * blocksPerMcu);
+        for (int interval : picked) {
+            EntropyDecoder.ScanComponent[] local = new EntropyDecoder.ScanComponent[scan.length];
+            for (int i = 0; i < scan.length; i++) {
+                local[i] = scan[i].fresh();
+            }
+            int firstMcu = interval * restartInterval;
+            int endMcu = Math.min(firstMcu + restartInterval, totalMcus);
+            new EntropyDecoder(data, starts[interval])
+                .decodeMcus(local, mcusPerLine, firstMcu, endMcu, restartInterval, store);
+        }
+        return store.toHeapStore();
+    }
+
+    /**
+     * 抽样时使用的系数存储：忽略块的原始位置，按写入顺序依次追加
+     */
+    private static final class SampleStore implements CoefficientStore {
+        private final short[] coefficients;
+        private int used;
+
+        SampleStore(int blocks) {
+            this.coefficients = new short[blocks * JpegImage.BLOCK_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return used;
+        }
+
+        @Override
+        public short get(int index) {
+            return coefficients[index];
+        }
+
+        @Override
+        public void set(int index, short value) {
+            coefficients[index] = value;
+        }
+
+        @Override
+        public void putBlock(int offset, short[] block) {
+            System.arraycopy(block, 0, coefficients, used, JpegImage.BLOCK_SIZE);
+            used += JpegImage.BLOCK_SIZE;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        HeapCoefficientStore toHeapStore() {
+            return new HeapCoefficientStore(coefficients, used, null);
+        }
+    }
+
+    /**
+     * 只计数不保存的系数存储，每写入一个块就统计其中的可用AC系数
+     */
+    private static final class CountingStore implements CoefficientStore {
+        private final int minMagnitude;
+        private int size;
+        private long usable;
+
+        CountingStore(int minMagnitude) {
+            this.minMagnitude = minMagnitude;
+        }
+
+        CoefficientStore reset(int size) {
+            this.size = size;
+            this.usable = 0;
+            return this;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public short get(int index) {
+            throw new UnsupportedOperationException("计数存储不保存系数");
+        }
+
+        @Override
+        public void set(int index, short value) {
+            throw new UnsupportedOperationException("计数存储不保存系数");
+        }
+
+        @Override
+        public void putBlock(int offset, short[] block) {
+            int count = 0;
+            for (int k = 1; k < JpegImage.BLOCK_SIZE; k++) {
+                count += Math.abs(block[k]) >= minMagnitude ? 1 : 0;
+            }
+            usable += count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private void decodeIntervals(EntropyDecoder.ScanComponent[] scan, int[] starts,
+                                 int firstInterval, int endInterval, int totalMcus) throws JpegFormatException {
+        EntropyDecoder.ScanComponent[] local = new EntropyDecoder.ScanComponent[scan.length];
+        for (int i = 0; i < scan.length; i++) {
+            local[i] = scan[i].fresh();
+        }
+        int firstMcu = firstInterval * restartInterval;
+        int endMcu = (int) Math.min((long) endInterval * restartInterval, totalMcus);
+        new EntropyDecoder(data, starts[firstInterval])
+            .decodeMcus(local, mcusPerLine, firstMcu, endMcu, restartInterval, coefficients);
+    }
+
+    private JpegImage.Component findComponent(int id) throws JpegFormatException {
+        for (JpegImage.Component c : components) {
+            if (c.id == id) {
+                return c;
+            }
+        }
+        throw new JpegFormatException("扫描引用了未知分量: " + id);
+    }
+
+    private int u8(int p) {
+        return data.get(p) & 0xFF;
+    }
+
+    private int u16(int p) {
+        return (u8(p) << 8) | u8(p + 1);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,47 @@
+package com.outguess.server.jpeg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 无损重写JPEG：原图中熵编码段以外的字节（各标记段、量化表、Huffman表等）原样复制，
+ * 每个扫描的熵编码段按修改后的系数用原有Huffman表重新编码
+ * 系数只能在不改变幅度类别的范围内修改，否则原表中可能没有对应的符号
+ */
+public final class JpegWriter {
+
+    private JpegWriter() {}
+
+    /**
+     * original必须是解析出image的同一份数据
+     */
+    public static void write(ByteBuffer original, JpegImage image, OutputStream out) throws IOException {
+        int pos = original.position();
+        byte[] copyBuffer = new byte[8192];
+        EntropyEncoder encoder = new EntropyEncoder(out);
+        for (JpegImage.Scan scan : image.scans) {
+            copy(original, pos, scan.dataStart, out, copyBuffer);
+            encoder.encodeScan(scan, image.mcusPerLine, image.mcusPerColumn, image.getCoefficients());
+            pos = scan.dataEnd;
+        }
+        copy(original, pos, original.limit(), out, copyBuffer);
+    }
+
+    public static byte[] write(byte[] original, JpegImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(original.length + 1024);
+        write(ByteBuffer.wrap(original), image, out);
+        return out.toByteArray();
+    }
+
+    private static void copy(ByteBuffer data, int from, int to, OutputStream out, byte[] buffer)
+            throws IOException {
+        while (from < to) {
+            int n = Math.min(buffer.length, to - from);
+            data.get(from, buffer, 0, n);
+            out.write(buffer, 0, n);
+            from += n;
+        }
+    }
+}
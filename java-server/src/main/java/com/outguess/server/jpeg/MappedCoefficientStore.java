@@ -0,0 +1,90 @@
+package com.outguess.server.jpeg;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射临时文件的系数存储
+ *
+ * 文件以DELETE_ON_CLOSE方式创建，映射完成后立即关闭通道，临时文件不会残留；
+ * 单个映射不能超过2GB，因此按段映射，段大小为块大小的整数倍，保证块不会跨段。
+ * 映射在缓冲区被回收时才释放，同时存在的映射总量由 {@link SpillBudget} 限制
+ */
+public final class MappedCoefficientStore implements CoefficientStore {
+
+    private static final int SEGMENT_SHIFT = 29; // 每段 2^29 个系数 (1GB)
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final int size;
+    private ShortBuffer[] segments;
+
+    private MappedCoefficientStore(int size, ShortBuffer[] segments) {
+        this.size = size;
+        this.segments = segments;
+    }
+
+    public static MappedCoefficientStore create(Path directory, int size) throws IOException {
+        return create(directory, size, SpillBudget.UNLIMITED);
+    }
+
+    /**
+     * 先从budget预留全部字节再映射，额度不足时抛出IOException；每段的额度在该段映射被回收后退还
+     */
+    public static MappedCoefficientStore create(Path directory, int size, SpillBudget budget) throws IOException {
+        long unregistered = (long) size * Short.BYTES;
+        budget.reserve(unregistered);
+        try {
+            Path file = Files.createTempFile(directory, "outguess-coeff-", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+                int segmentCount = (int) (((long) size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+                ShortBuffer[] segments = new ShortBuffer[Math.max(1, segmentCount)];
+                for (int i = 0; i < segments.length; i++) {
+                    long first = (long) i << SEGMENT_SHIFT;
+                    long bytes = Math.max(0, Math.min(1L << SEGMENT_SHIFT, size - first)) * Short.BYTES;
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, first * Short.BYTES, bytes);
+                    budget.releaseWhenUnreachable(mapped, bytes);
+                    unregistered -= bytes;
+                    segments[i] = mapped.order(ByteOrder.nativeOrder()).asShortBuffer();
+                }
+                return new MappedCoefficientStore(size, segments);
+            }
+        } finally {
+            if (unregistered > 0) {
+                budget.release(unregistered);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public short get(int index) {
+        return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    @Override
+    public void set(int index, short value) {
+        segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+    }
+
+    @Override
+    public void putBlock(int offset, short[] block) {
+        segments[offset >>> SEGMENT_SHIFT].put(offset & SEGMENT_MASK, block, 0, JpegImage.BLOCK_SIZE);
+    }
+
+    @Override
+    public void close() {
+        // 映射在缓冲区被回收时释放并退还额度，文件已在创建时删除
+        segments = null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.outguess.server.jpeg;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存映射临时文件的总量上限
+ *
+ * Java 17没有公开的unmap，映射和已删除临时文件的磁盘块要到MappedByteBuffer被回收时才释放，
+ * 因此额度在映射被回收后才退还，而不是在close()时。额度不足时先请求一次GC再短暂重试，
+ * 与JDK为直接内存预留额度时的做法相同；仍然不足则拒绝本次溢出
+ */
+public final class SpillBudget {
+
+    /** 不限制总量 */
+    public static final SpillBudget UNLIMITED = new SpillBudget(0);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int MAX_RETRIES = 7; // 重试间隔1,2,4...64ms，合计约0.13秒
+
+    private final long maxBytes;
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    /**
+     * @param maxBytes 同时存在的映射总字节数上限，0表示不限制
+     */
+    public SpillBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 预留额度，等待已关闭的映射被回收后仍不足时抛出IOException
+     */
+    void reserve(long bytes) throws IOException {
+        if (tryReserve(bytes)) {
+            return;
+        }
+        System.gc();
+        try {
+            for (int i = 0; i < MAX_RETRIES; i++) {
+                if (tryReserve(bytes)) {
+                    return;
+                }
+                Thread.sleep(1L << i);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待映射文件额度时被中断", e);
+        }
+        if (!tryReserve(bytes)) {
+            throw new IOException("映射文件总量超过上限 " + maxBytes + " bytes，无法溢出 " + bytes + " bytes");
+        }
+    }
+
+    /**
+     * mapping不可达（映射被释放）时退还 bytes 的额度
+     */
+    void releaseWhenUnreachable(Object mapping, long bytes) {
+        CLEANER.register(mapping, () -> release(bytes));
+    }
+
+    void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+    }
+
+    private boolean tryReserve(long bytes) {
+        while (true) {
+            long current = reservedBytes.get();
+            if (maxBytes > 0 && current + bytes > maxBytes) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /** 尚未释放的映射总字节数（含已关闭但还未被回收的映射） */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
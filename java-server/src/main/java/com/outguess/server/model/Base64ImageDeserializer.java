@@ -0,0 +1,148 @@
+package com.outguess.server.model;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.exception.ImageDataException;
+import com.outguess.server.service.DecodeMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * imageData字段的流式Base64反序列化器
+ *
+ * 直接从请求体解码Base64到池化的字节块中，不生成完整的String；
+ * 读到前两个字节即校验JPEG SOI标记，超过 maxFileSize 时立即中止读取
+ */
+public class Base64ImageDeserializer extends StdDeserializer<byte[]> {
+
+    private static final Base64Variant BASE64 =
+        Base64Variants.MIME_NO_LINEFEEDS.withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final ArrayBlockingQueue<byte[]> CHUNK_POOL = new ArrayBlockingQueue<>(128);
+
+    @Autowired(required = false)
+    private OutguessConfig config;
+    
+    @Autowired(required = false)
+    private DecodeMetrics metrics;
+
+    public Base64ImageDeserializer() {
+        super(byte[].class);
+    }
+
+    @Override
+    public byte[] deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new ImageDataException("INVALID_IMAGE_DATA", "图像数据必须是Base64字符串");
+        }
+
+        int maxFileSize = config != null ? config.getMaxFileSize() : new OutguessConfig().getMaxFileSize();
+        // base64阶段的耗时包含读取请求体的时间
+        long start = System.nanoTime();
+        try (ChunkedImageBuffer buffer = new ChunkedImageBuffer(maxFileSize)) {
+            try {
+                parser.readBinaryValue(BASE64, buffer);
+            } catch (ImageDataException e) {
+                throw e;
+            } catch (IOException | IllegalArgumentException e) {
+                throw new ImageDataException("INVALID_IMAGE_DATA", "无效的Base64图像数据");
+            }
+            byte[] imageData = buffer.toByteArray();
+            if (metrics != null) {
+                metrics.recordStage(DecodeMetrics.Stage.BASE64, System.nanoTime() - start);
+            }
+            return imageData;
+        }
+    }
+
+    /**
+     * 由池化字节块组成的输出缓冲区，边写入边校验
+     */
+    private static final class ChunkedImageBuffer extends OutputStream {
+
+        private final int maxSize;
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] current;
+        private int currentUsed;
+        private int size;
+
+        ChunkedImageBuffer(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (size + (long) len > maxSize) {
+                throw new ImageDataException("FILE_TOO_LARGE", "文件大小超过限制: " + maxSize + " bytes");
+            }
+            checkSoi(b, off, len);
+
+            while (len > 0) {
+                if (current == null || currentUsed == current.length) {
+                    current = acquireChunk();
+                    chunks.add(current);
+                    currentUsed = 0;
+                }
+                int n = Math.min(len, current.length - currentUsed);
+                System.arraycopy(b, off, current, currentUsed, n);
+                currentUsed += n;
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * JPEG必须以 FF D8 开头
+         */
+        private void checkSoi(byte[] b, int off, int len) throws ImageDataException {
+            for (int i = 0; i < len && size + i < 2; i++) {
+                int expected = size + i == 0 ? 0xFF : 0xD8;
+                if ((b[off + i] & 0xFF) != expected) {
+                    throw new ImageDataException("INVALID_IMAGE_DATA", "图像数据不是JPEG格式");
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[size];
+            int pos = 0;
+            for (byte[] chunk : chunks) {
+                int n = Math.min(chunk.length, size - pos);
+                System.arraycopy(chunk, 0, result, pos, n);
+                pos += n;
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            for (byte[] chunk : chunks) {
+                CHUNK_POOL.offer(chunk);
+            }
+            chunks.clear();
+            current = null;
+        }
+
+        private static byte[] acquireChunk() {
+            byte[] chunk = CHUNK_POOL.poll();
+            return chunk != null ? chunk : new byte[CHUNK_SIZE];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.outguess.server.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * 批量解码中单个图像的结果，NDJSON输出时与OutguessResponse字段平铺在同一行
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchDecodeResult {
+    
+    private int index;
+    private String filename;
+    
+    @JsonUnwrapped
+    private OutguessResponse response;
+    
+    public BatchDecodeResult() {}
+    
+    public BatchDecodeResult(int index, String filename, OutguessResponse response) {
+        this.index = index;
+        this.filename = filename;
+        this.response = response;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+    
+    public OutguessResponse getResponse() {
+        return response;
+    }
+    
+    public void setResponse(OutguessResponse response) {
+        this.response = response;
+    }
+}
@@ -0,0 +1,61 @@
+package com.outguess.server.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Outguess容量估算请求模型
+ */
+public class OutguessCapacityRequest {
+    
+    @NotEmpty(message = "图像数据不能为空")
+    @JsonProperty("imageData")
+    @JsonDeserialize(using = Base64ImageDeserializer.class)
+    private byte[] imageData; // JSON中为Base64编码，反序列化时流式解码为JPEG字节
+    
+    @Min(value = 1, message = "抗压缩等级必须在1到10之间")
+    @Max(value = 10, message = "抗压缩等级必须在1到10之间")
+    private int compressionResistance = 5; // 与移动端默认值一致
+    
+    @Min(value = 1, message = "质量必须在1到100之间")
+    @Max(value = 100, message = "质量必须在1到100之间")
+    private int quality = 85;
+    
+    private String filename;
+    
+    // Getters and Setters
+    public byte[] getImageData() {
+        return imageData;
+    }
+    
+    public void setImageData(byte[] imageData) {
+        this.imageData = imageData;
+    }
+    
+    public int getCompressionResistance() {
+        return compressionResistance;
+    }
+    
+    public void setCompressionResistance(int compressionResistance) {
+        this.compressionResistance = compressionResistance;
+    }
+    
+    public int getQuality() {
+        return quality;
+    }
+    
+    public void setQuality(int quality) {
+        this.quality = quality;
+    }
+    
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+}
@@ -0,0 +1,58 @@
+package com.outguess.server.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Outguess嵌入请求模型
+ */
+public class OutguessEmbedRequest {
+    
+    @NotEmpty(message = "图像数据不能为空")
+    @JsonProperty("imageData")
+    @JsonDeserialize(using = Base64ImageDeserializer.class)
+    private byte[] imageData; // JSON中为Base64编码，反序列化时流式解码为JPEG字节
+    
+    @NotEmpty(message = "消息不能为空")
+    private String message;
+    
+    @Size(max = 100, message = "密码长度不能超过100字符")
+    private String password;
+    
+    private String filename;
+    
+    // Getters and Setters
+    public byte[] getImageData() {
+        return imageData;
+    }
+    
+    public void setImageData(byte[] imageData) {
+        this.imageData = imageData;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public void setPassword(String password) {
+        this.password = password;
+    }
+    
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+}
@@ -1,15 +1,22 @@
 package com.outguess.server.model;
 
-import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 
+import java.util.Base64;
+
 /**
  * Outguess解码请求模型
  */
 public class OutguessRequest {
     
-    @NotNull(message = "图像数据不能为空")
-    private String imageData; // Base64编码的图像数据
+    @NotEmpty(message = "图像数据不能为空")
+    @JsonProperty("imageData")
+    @JsonDeserialize(using = Base64ImageDeserializer.class)
+    private byte[] imageData; // JSON中为Base64编码，反序列化时流式解码为JPEG字节
     
     @Size(max = 100, message = "密码长度不能超过100字符")
     private String password;
@@ -22,19 +29,27 @@ public class OutguessRequest {
     public OutguessRequest() {}
     
     public OutguessRequest(String imageData, String password) {
-        this.imageData = imageData;
+        setImageData(imageData);
         this.password = password;
     }
     
     // Getters and Setters
-    public String getImageData() {
+    public byte[] getImageData() {
         return imageData;
     }
     
-    public void setImageData(String imageData) {
+    public void setImageData(byte[] imageData) {
         this.imageData = imageData;
     }
     
+    /**
+     * 以Base64字符串设置图像数据（供Java客户端使用）
+     */
+    @JsonIgnore
+    public void setImageData(String base64ImageData) {
+        this.imageData = base64ImageData != null ? Base64.getMimeDecoder().decode(base64ImageData) : null;
+    }
+    
     public String getPassword() {
         return password;
     }
@@ -13,8 +13,10 @@ public class OutguessResponse {
     private Integer messageSize;
     private Long processingTime;
     private Boolean verified;
+    private Double confidence; // 隐藏数据检测结论的置信度（0~1）
     private String errorCode;
     private String errorMessage;
+    private Capacity capacity; // 容量估算结果
     private ResponseMetadata metadata;
     
     // Constructors
@@ -81,6 +83,14 @@ public class OutguessResponse {
         this.verified = verified;
     }
     
+    public Double getConfidence() {
+        return confidence;
+    }
+    
+    public void setConfidence(Double confidence) {
+        this.confidence = confidence;
+    }
+    
     public String getErrorCode() {
         return errorCode;
     }
@@ -97,6 +107,14 @@ public class OutguessResponse {
         this.errorMessage = errorMessage;
     }
     
+    public Capacity getCapacity() {
+        return capacity;
+    }
+    
+    public void setCapacity(Capacity capacity) {
+        this.capacity = capacity;
+    }
+    
     public ResponseMetadata getMetadata() {
         return metadata;
     }
@@ -112,6 +130,9 @@ public class OutguessResponse {
         private String version = "1.0.0";
         private long timestamp = System.currentTimeMillis();
         private String serverInfo = "Outguess Java Server";
+        private Boolean cached; // 结果是否来自解码结果缓存
+        private Integer sampledBlocks; // 隐藏数据检测时抽样解码的块数
+        private Statistics statistics; // 隐藏数据检测所依据的系数统计
         
         // Getters and Setters
         public String getVersion() {
@@ -137,5 +158,169 @@ public class OutguessResponse {
         public void setServerInfo(String serverInfo) {
             this.serverInfo = serverInfo;
         }
+        
+        public Boolean getCached() {
+            return cached;
+        }
+        
+        public void setCached(Boolean cached) {
+            this.cached = cached;
+        }
+        
+        public Integer getSampledBlocks() {
+            return sampledBlocks;
+        }
+        
+        public void setSampledBlocks(Integer sampledBlocks) {
+            this.sampledBlocks = sampledBlocks;
+        }
+        
+        public Statistics getStatistics() {
+            return statistics;
+        }
+        
+        public void setStatistics(Statistics statistics) {
+            this.statistics = statistics;
+        }
+    }
+    
+    /**
+     * 图像容量（可用系数指非DC且绝对值不小于2的系数）
+     */
+    public static class Capacity {
+        private long totalCoefficients;
+        private long usableCoefficients;
+        private int maxMessageSize; // 可嵌入的最大消息字节数（不含8字节头部）
+        private int compressionResistance;
+        private int quality;
+        
+        // Getters and Setters
+        public long getTotalCoefficients() {
+            return totalCoefficients;
+        }
+        
+        public void setTotalCoefficients(long totalCoefficients) {
+            this.totalCoefficients = totalCoefficients;
+        }
+        
+        public long getUsableCoefficients() {
+            return usableCoefficients;
+        }
+        
+        public void setUsableCoefficients(long usableCoefficients) {
+            this.usableCoefficients = usableCoefficients;
+        }
+        
+        public int getMaxMessageSize() {
+            return maxMessageSize;
+        }
+        
+        public void setMaxMessageSize(int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+        }
+        
+        public int getCompressionResistance() {
+            return compressionResistance;
+        }
+        
+        public void setCompressionResistance(int compressionResistance) {
+            this.compressionResistance = compressionResistance;
+        }
+        
+        public int getQuality() {
+            return quality;
+        }
+        
+        public void setQuality(int quality) {
+            this.quality = quality;
+        }
+    }
+    
+    /**
+     * DCT系数统计（可用系数指非DC且绝对值不小于2的系数）
+     */
+    public static class Statistics {
+        private long totalCoefficients;
+        private long usableCoefficients;
+        private double entropy; // 系数值分布的香农熵（比特）
+        private double lsbZeroRatio; // 可用系数中LSB为0的比例
+        private double chiSquare; // 值对(2k, 2k+1)的卡方统计量
+        private int chiSquareDegrees;
+        private double chiSquareProbability; // 卡方上尾概率，接近1说明值对被均衡（LSB嵌入特征）
+        private double[] frequencyNonZeroRatio; // 各频率位置（块内自然顺序）非零系数的比例
+        private Double[] frequencyLsbZeroRatio; // 各频率位置可用系数中LSB为0的比例，无可用系数时为null
+        
+        // Getters and Setters
+        public long getTotalCoefficients() {
+            return totalCoefficients;
+        }
+        
+        public void setTotalCoefficients(long totalCoefficients) {
+            this.totalCoefficients = totalCoefficients;
+        }
+        
+        public long getUsableCoefficients() {
+            return usableCoefficients;
+        }
+        
+        public void setUsableCoefficients(long usableCoefficients) {
+            this.usableCoefficients = usableCoefficients;
+        }
+        
+        public double getEntropy() {
+            return entropy;
+        }
+        
+        public void setEntropy(double entropy) {
+            this.entropy = entropy;
+        }
+        
+        public double getLsbZeroRatio() {
+            return lsbZeroRatio;
+        }
+        
+        public void setLsbZeroRatio(double lsbZeroRatio) {
+            this.lsbZeroRatio = lsbZeroRatio;
+        }
+        
+        public double getChiSquare() {
+            return chiSquare;
+        }
+        
+        public void setChiSquare(double chiSquare) {
+            this.chiSquare = chiSquare;
+        }
+        
+        public int getChiSquareDegrees() {
+            return chiSquareDegrees;
+        }
+        
+        public void setChiSquareDegrees(int chiSquareDegrees) {
+            this.chiSquareDegrees = chiSquareDegrees;
+        }
+        
+        public double getChiSquareProbability() {
+            return chiSquareProbability;
+        }
+        
+        public void setChiSquareProbability(double chiSquareProbability) {
+            this.chiSquareProbability = chiSquareProbability;
+        }
+        
+        public double[] getFrequencyNonZeroRatio() {
+            return frequencyNonZeroRatio;
+        }
+        
+        public void setFrequencyNonZeroRatio(double[] frequencyNonZeroRatio) {
+            this.frequencyNonZeroRatio = frequencyNonZeroRatio;
+        }
+        
+        public Double[] getFrequencyLsbZeroRatio() {
+            return frequencyLsbZeroRatio;
+        }
+        
+        public void setFrequencyLsbZeroRatio(Double[] frequencyLsbZeroRatio) {
+            this.frequencyLsbZeroRatio = frequencyLsbZeroRatio;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.outguess.server.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按尺寸分级的缓冲池
+ *
+ * 系数数组（short[]）和字节数组（byte[]）按2的幂分级复用，避免每个请求都分配大数组
+ * （G1下超过region一半的数组会成为humongous对象）。空闲数组总大小受预算限制，
+ * 超出预算的归还直接丢弃交给GC。借出的数组内容是脏的，调用方需要自行清零。
+ */
+public class BufferPool {
+
+    /** 最小分级 4096 个元素，更小的请求也按该级别分配 */
+    private static final int MIN_CLASS_SHIFT = 12;
+    /** 最大分级 2^30 个元素，超过的请求直接分配且不回收 */
+    private static final int MAX_CLASS_SHIFT = 30;
+
+    private final long maxBytes;
+    private final Object lock = new Object();
+    private final List<ArrayDeque<short[]>> shortClasses = new ArrayList<>();
+    private final List<ArrayDeque<byte[]>> byteClasses = new ArrayList<>();
+    private long pooledBytes;
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    public BufferPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+        for (int i = 0; i <= MAX_CLASS_SHIFT; i++) {
+            shortClasses.add(new ArrayDeque<>());
+            byteClasses.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * 借出长度不小于minLength的short[]
+     */
+    public short[] leaseShorts(int minLength) {
+        leases.incrementAndGet();
+        int shift = classShift(minLength);
+        if (shift < 0) {
+            return new short[minLength];
+        }
+        short[] array;
+        synchronized (lock) {
+            array = shortClasses.get(shift).pollFirst();
+            if (array != null) {
+                pooledBytes -= (long) array.length * Short.BYTES;
+            }
+        }
+        if (array != null) {
+            reuses.incrementAndGet();
+            return array;
+        }
+        return new short[1 << shift];
+    }
+
+    /**
+     * 借出长度不小于minLength的byte[]
+     */
+    public byte[] leaseBytes(int minLength) {
+        leases.incrementAndGet();
+        int shift = classShift(minLength);
+        if (shift < 0) {
+            return new byte[minLength];
+        }
+        byte[] array;
+        synchronized (lock) {
+            array = byteClasses.get(shift).pollFirst();
+            if (array != null) {
+                pooledBytes -= array.length;
+            }
+        }
+        if (array != null) {
+            reuses.incrementAndGet();
+            return array;
+        }
+        return new byte[1 << shift];
+    }
+
+    /**
+     * 归还short[]；非本池分级尺寸的数组或超出预算时丢弃
+     */
+    public void release(short[] array) {
+        int shift = exactShift(array.length);
+        long bytes = (long) array.length * Short.BYTES;
+        synchronized (lock) {
+            if (shift >= 0 && pooledBytes + bytes <= maxBytes) {
+                shortClasses.get(shift).addFirst(array);
+                pooledBytes += bytes;
+                return;
+            }
+        }
+        discards.incrementAndGet();
+    }
+
+    /**
+     * 归还byte[]；非本池分级尺寸的数组或超出预算时丢弃
+     */
+    public void release(byte[] array) {
+        int shift = exactShift(array.length);
+        synchronized (lock) {
+            if (shift >= 0 && pooledBytes + array.length <= maxBytes) {
+                byteClasses.get(shift).addFirst(array);
+                pooledBytes += array.length;
+                return;
+            }
+        }
+        discards.incrementAndGet();
+    }
+
+    /**
+     * 请求长度对应的分级，超出最大分级时返回-1
+     */
+    private static int classShift(int minLength) {
+        if (minLength > 1 << MAX_CLASS_SHIFT) {
+            return -1;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(minLength, 1) - 1);
+        return Math.max(shift, MIN_CLASS_SHIFT);
+    }
+
+    /**
+     * 数组长度恰好是某个分级时返回该分级，否则返回-1
+     */
+    private static int exactShift(int length) {
+        if (length < 1 << MIN_CLASS_SHIFT || Integer.bitCount(length) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(length);
+    }
+
+    public long getLeaseCount() {
+        return leases.get();
+    }
+
+    public long getReuseCount() {
+        return reuses.get();
+    }
+
+    public long getDiscardCount() {
+        return discards.get();
+    }
+
+    public long getPooledBytes() {
+        synchronized (lock) {
+            return pooledBytes;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
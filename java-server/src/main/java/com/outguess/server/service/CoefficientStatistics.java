@@ -0,0 +1,237 @@
+package com.outguess.server.service;
+
+import com.outguess.server.jpeg.CoefficientStore;
+import com.outguess.server.jpeg.HeapCoefficientStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * DCT系数的隐写分析统计
+ *
+ * 一次遍历系数，构建按系数值索引的int[]直方图和按块内频率位置的计数，
+ * 熵、LSB平衡、值对卡方和各频率统计都由这些计数得出，不再重复遍历系数。
+ * 可用系数与解码器一致：非DC且 |c| >= 2。
+ */
+public final class CoefficientStatistics {
+
+    public static final int FREQUENCIES = 64;
+
+    private static final int MIN_USABLE = 2;
+    private static final int VALUE_OFFSET = 1 << 15;
+    private static final int VALUE_RANGE = 1 << 16;
+    /** 单个任务至少处理的系数数（块大小的整数倍），系数更少时不并行 */
+    private static final int MIN_PER_TASK = 1 << 20;
+    /** 卡方检验只统计期望频数不小于该值的值对 */
+    private static final double MIN_EXPECTED = 5.0;
+
+    private final long total;
+    private final long usable;
+    private final long usableEven;
+    private final double entropy;
+    private final double chiSquare;
+    private final int chiSquareDegrees;
+    private final double[] frequencyNonZeroRatio;
+    private final double[] frequencyLsbZeroRatio;
+
+    private CoefficientStatistics(Histogram h) {
+        this.total = h.total;
+        long usableCount = 0;
+        long evenCount = 0;
+        for (int k = 1; k < FREQUENCIES; k++) {
+            usableCount += h.usable[k];
+            evenCount += h.usable[k] - h.usableOdd[k];
+        }
+        this.usable = usableCount;
+        this.usableEven = evenCount;
+        this.entropy = entropy(h.values, h.total);
+
+        // 值对 (2k, 2k+1)：LSB嵌入会使同一对中两个值的频数趋于相等
+        double chi = 0.0;
+        int pairs = 0;
+        for (int p = -(VALUE_OFFSET >> 1); p < (VALUE_OFFSET >> 1); p++) {
+            int even = 2 * p;
+            if (Math.abs(even) < MIN_USABLE || Math.abs(even + 1) < MIN_USABLE) {
+                continue;
+            }
+            double expected = (h.acValues[even + VALUE_OFFSET] + h.acValues[even + 1 + VALUE_OFFSET]) / 2.0;
+            if (expected < MIN_EXPECTED) {
+                continue;
+            }
+            double diff = h.acValues[even + VALUE_OFFSET] - expected;
+            chi += diff * diff / expected;
+            pairs++;
+        }
+        this.chiSquare = chi;
+        this.chiSquareDegrees = Math.max(pairs - 1, 0);
+
+        this.frequencyNonZeroRatio = new double[FREQUENCIES];
+        this.frequencyLsbZeroRatio = new double[FREQUENCIES];
+        for (int k = 0; k < FREQUENCIES; k++) {
+            frequencyNonZeroRatio[k] = h.blocks == 0 ? 0.0 : (double) h.nonZero[k] / h.blocks;
+            frequencyLsbZeroRatio[k] = h.usable[k] == 0 ? Double.NaN
+                : (double) (h.usable[k] - h.usableOdd[k]) / h.usable[k];
+        }
+    }
+
+    /**
+     * 统计全部系数；pool不为null且系数足够多时按块边界拆分并行统计，再合并部分直方图
+     */
+    public static CoefficientStatistics compute(CoefficientStore coefficients, ForkJoinPool pool) {
+        int size = coefficients.size();
+        int tasks = pool == null ? 1 : (int) Math.min(pool.getParallelism(), size / MIN_PER_TASK);
+        if (tasks <= 1) {
+            return new CoefficientStatistics(Histogram.of(coefficients, 0, size));
+        }
+
+        int blocks = size / FREQUENCIES;
+        List<ForkJoinTask<Histogram>> partials = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int from = (int) ((long) blocks * t / tasks) * FREQUENCIES;
+            int to = t == tasks - 1 ? size : (int) ((long) blocks * (t + 1) / tasks) * FREQUENCIES;
+            partials.add(pool.submit(() -> Histogram.of(coefficients, from, to)));
+        }
+        Histogram merged = partials.get(0).join();
+        for (int t = 1; t < tasks; t++) {
+            merged.merge(partials.get(t).join());
+        }
+        return new CoefficientStatistics(merged);
+    }
+
+    private static double entropy(int[] values, long total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int count : values) {
+            if (count > 0) {
+                double probability = count / (double) total;
+                sum -= probability * Math.log(probability);
+            }
+        }
+        return sum / Math.log(2);
+    }
+
+    /** 系数总数 */
+    public long getTotal() { return total; }
+
+    /** 可用于嵌入的系数数（非DC且 |c| >= 2） */
+    public long getUsable() { return usable; }
+
+    /** 全部系数值分布的香农熵（比特） */
+    public double getEntropy() { return entropy; }
+
+    /** 可用系数中LSB为0的比例，没有可用系数时为0.5 */
+    public double getLsbZeroRatio() {
+        return usable == 0 ? 0.5 : (double) usableEven / usable;
+    }
+
+    /** 可用AC系数值对 (2k, 2k+1) 的卡方统计量 */
+    public double getChiSquare() { return chiSquare; }
+
+    public int getChiSquareDegrees() { return chiSquareDegrees; }
+
+    /**
+     * 值对频数“已被均衡”的概率：卡方上尾概率，接近1说明值对分布异常均匀（LSB嵌入的特征）
+     * 使用Wilson-Hilferty正态近似
+     */
+    public double getChiSquareProbability() {
+        if (chiSquareDegrees == 0) {
+            return 0.0;
+        }
+        double k = chiSquareDegrees;
+        double z = (Math.cbrt(chiSquare / k) - (1 - 2 / (9 * k))) / Math.sqrt(2 / (9 * k));
+        return 1.0 - normalCdf(z);
+    }
+
+    /** 各频率位置（块内自然顺序）非零系数占块数的比例 */
+    public double[] getFrequencyNonZeroRatio() { return frequencyNonZeroRatio.clone(); }
+
+    /** 各频率位置可用系数中LSB为0的比例，没有可用系数时为NaN（DC始终为NaN） */
+    public double[] getFrequencyLsbZeroRatio() { return frequencyLsbZeroRatio.clone(); }
+
+    /**
+     * 标准正态分布函数（Abramowitz-Stegun 7.1.26，误差小于1.5e-7）
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1.0 / (1.0 + 0.3275911 * x);
+        double erf = 1.0 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+            + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1.0 + erf) : 0.5 * (1.0 - erf);
+    }
+
+    /**
+     * 部分直方图：系数值计数（全部/仅AC）和按频率位置的计数
+     */
+    private static final class Histogram {
+        final int[] values = new int[VALUE_RANGE];
+        final int[] acValues = new int[VALUE_RANGE];
+        final long[] nonZero = new long[FREQUENCIES];
+        final long[] usable = new long[FREQUENCIES];
+        final long[] usableOdd = new long[FREQUENCIES];
+        long total;
+        long blocks;
+
+        /**
+         * 统计 [from, to) 范围内的系数，from必须位于块边界
+         */
+        static Histogram of(CoefficientStore coefficients, int from, int to) {
+            Histogram h = new Histogram();
+            if (coefficients instanceof HeapCoefficientStore heap) {
+                h.addArray(heap.array(), from, to);
+            } else {
+                short[] block = new short[FREQUENCIES];
+                for (int offset = from; offset < to; offset += FREQUENCIES) {
+                    int n = Math.min(FREQUENCIES, to - offset);
+                    for (int k = 0; k < n; k++) {
+                        block[k] = coefficients.get(offset + k);
+                    }
+                    h.addArray(block, 0, n);
+                }
+            }
+            return h;
+        }
+
+        private void addArray(short[] data, int from, int to) {
+            int[] values = this.values;
+            int[] acValues = this.acValues;
+            long[] nonZero = this.nonZero;
+            long[] usable = this.usable;
+            long[] usableOdd = this.usableOdd;
+            for (int offset = from; offset < to; offset += FREQUENCIES) {
+                int n = Math.min(FREQUENCIES, to - offset);
+                int dc = data[offset];
+                values[dc + VALUE_OFFSET]++;
+                nonZero[0] += dc != 0 ? 1 : 0;
+                for (int k = 1; k < n; k++) {
+                    int c = data[offset + k];
+                    values[c + VALUE_OFFSET]++;
+                    acValues[c + VALUE_OFFSET]++;
+                    nonZero[k] += c != 0 ? 1 : 0;
+                    int u = Math.abs(c) >= MIN_USABLE ? 1 : 0;
+                    usable[k] += u;
+                    usableOdd[k] += c & u;
+                }
+                blocks++;
+            }
+            total += to - from;
+        }
+
+        void merge(Histogram other) {
+            for (int i = 0; i < VALUE_RANGE; i++) {
+                values[i] += other.values[i];
+                acValues[i] += other.acValues[i];
+            }
+            for (int k = 0; k < FREQUENCIES; k++) {
+                nonZero[k] += other.nonZero[k];
+                usable[k] += other.usable[k];
+                usableOdd[k] += other.usableOdd[k];
+            }
+            total += other.total;
+            blocks += other.blocks;
+        }
+    }
+}
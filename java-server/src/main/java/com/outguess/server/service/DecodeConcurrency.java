@@ -0,0 +1,112 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 解码任务的线程与并发控制
+ *
+ * 异步解码运行在Spring Boot的 applicationTaskExecutor 上：默认是 spring.task.execution.pool 配置的线程池，
+ * 在Java 21+上设置 spring.threads.virtual.enabled=true 后改为每个任务一个虚拟线程（Tomcat请求处理同时切换）。
+ * 无论哪种执行器，CPU密集的解码都要先取得许可，同时解码的数量不超过 decode-concurrency，
+ * 大量等待上传的连接不会把解码挤到超过核数的线程上
+ */
+@Component
+public class DecodeConcurrency {
+    
+    private final Executor asyncExecutor;
+    private final Semaphore decodePermits;
+    private final int maxConcurrentDecodes;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    /**
+     * 不在Spring容器中使用时，异步解码使用 max-concurrent-requests 大小的固定线程池
+     */
+    public DecodeConcurrency(OutguessConfig config) {
+        this(config, DecodeMetrics.local(), Executors.newFixedThreadPool(config.getMaxConcurrentRequests()));
+    }
+    
+    @Autowired
+    public DecodeConcurrency(OutguessConfig config, DecodeMetrics metrics,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                             ObjectProvider<Executor> applicationTaskExecutor) {
+        this(config, metrics, applicationTaskExecutor.getIfAvailable(
+            () -> Executors.newFixedThreadPool(config.getMaxConcurrentRequests())));
+    }
+    
+    public DecodeConcurrency(OutguessConfig config, DecodeMetrics metrics, Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.maxConcurrentDecodes = config.getDecodeConcurrency() > 0
+            ? config.getDecodeConcurrency() : Runtime.getRuntime().availableProcessors();
+        this.decodePermits = new Semaphore(maxConcurrentDecodes, true);
+        
+        metrics.gauge("outguess.decode.inflight", "正在解码或等待解码许可的请求数", inFlight::get);
+        metrics.gauge("outguess.decode.active", "正在解码的请求数", this::getActiveDecodes);
+        metrics.gauge("outguess.executor.queued", "线程池排队任务数", this::getQueuedDecodes, "executor", "decode-permits");
+        if (asyncExecutor instanceof ThreadPoolTaskExecutor pool) {
+            metrics.gauge("outguess.executor.queued", "线程池排队任务数", pool::getQueueSize, "executor", "async");
+        } else if (asyncExecutor instanceof ThreadPoolExecutor pool) {
+            metrics.gauge("outguess.executor.queued", "线程池排队任务数", () -> pool.getQueue().size(), "executor", "async");
+        }
+    }
+    
+    /**
+     * 在异步执行器上执行任务
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, asyncExecutor);
+    }
+    
+    /**
+     * 取得解码许可后执行CPU密集的任务
+     */
+    public <T> T runLimited(Supplier<T> task) {
+        inFlight.incrementAndGet();
+        try {
+            try {
+                decodePermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待解码许可时被中断", e);
+            }
+            try {
+                return task.get();
+            } finally {
+                decodePermits.release();
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    public int getMaxConcurrentDecodes() {
+        return maxConcurrentDecodes;
+    }
+    
+    /**
+     * 正在解码的任务数
+     */
+    public int getActiveDecodes() {
+        return maxConcurrentDecodes - decodePermits.availablePermits();
+    }
+    
+    /**
+     * 等待解码许可的线程数（估算值）
+     */
+    public int getQueuedDecodes() {
+        return decodePermits.getQueueLength();
+    }
+}
@@ -0,0 +1,105 @@
+package com.outguess.server.service;
+
+import com.outguess.server.model.OutguessResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 解码流水线的Micrometer指标
+ *
+ * outguess.decode.stage  各阶段耗时（带百分位直方图），按stage标签区分
+ * outguess.responses     按errorCode统计的响应数，成功响应的errorCode为none
+ * 以及各组件注册的队列深度、在途数量和缓存相关的gauge，和由组件自身累计的计数器（缓冲池复用次数等）
+ */
+@Component
+public class DecodeMetrics {
+    
+    /**
+     * 解码阶段
+     */
+    public enum Stage {
+        BASE64("base64"),
+        PARSE("parse"),
+        PERMUTATION("permutation"),
+        HEADER("header"),
+        PAYLOAD("payload"),
+        CRC("crc"),
+        DECRYPT("decrypt");
+        
+        private final String tag;
+        
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<String, Counter> responseCounters = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public DecodeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("outguess.decode.stage")
+                .description("解码流水线各阶段耗时")
+                .tag("stage", stage.tag)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry));
+        }
+    }
+    
+    /**
+     * 不接入监控系统时使用的实例（指标只保存在本地内存中）
+     */
+    public static DecodeMetrics local() {
+        return new DecodeMetrics(new SimpleMeterRegistry());
+    }
+    
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public Timer stageTimer(Stage stage) {
+        return stageTimers.get(stage);
+    }
+    
+    public void countResponse(OutguessResponse response) {
+        String errorCode = response.isSuccess() || response.getErrorCode() == null ? "none" : response.getErrorCode();
+        responseCounters.computeIfAbsent(errorCode, code -> Counter.builder("outguess.responses")
+            .description("按错误代码统计的响应数")
+            .tag("errorCode", code)
+            .register(registry)).increment();
+    }
+    
+    public void gauge(String name, String description, Supplier<Number> value, String... tags) {
+        Gauge.builder(name, value)
+            .description(description)
+            .tags(tags)
+            .register(registry);
+    }
+    
+    /**
+     * 注册由组件自身累计的单调计数（如AtomicLong），读取指标时取source的当前值
+     */
+    public <T> void counter(String name, String description, T source, ToDoubleFunction<T> count, String... tags) {
+        FunctionCounter.builder(name, source, count)
+            .description(description)
+            .tags(tags)
+            .register(registry);
+    }
+}
@@ -0,0 +1,170 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按内容寻址的解码结果缓存
+ *
+ * 键为JPEG字节的SHA-256加上密码的HMAC-SHA256（密钥在进程启动时随机生成，密码本身不会驻留在缓存中），
+ * 按LRU和TTL淘汰，总大小受字节预算限制。只缓存成功的结果，避免把临时性错误固定下来。
+ */
+@Component
+public class DecodeResultCache {
+
+    /** 每个条目除消息内容外的估算开销（键、结果对象、链表节点） */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    public record Key(ByteBuffer content, ByteBuffer password) {}
+
+    private record Entry(OutguessDecoder.DecodeResult result, long size, long expiresAt) {}
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final SecretKeySpec passwordKey;
+    private final Object lock = new Object();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DecodeResultCache(OutguessConfig config) {
+        this(config, DecodeMetrics.local());
+    }
+
+    @Autowired
+    public DecodeResultCache(OutguessConfig config, DecodeMetrics metrics) {
+        this(config.getResultCacheMaxBytes(), TimeUnit.SECONDS.toNanos(config.getResultCacheTtlSeconds()), System::nanoTime);
+        metrics.counter("outguess.result.cache.requests", "解码结果缓存查询次数", hits, AtomicLong::get, "result", "hit");
+        metrics.counter("outguess.result.cache.requests", "解码结果缓存查询次数", misses, AtomicLong::get, "result", "miss");
+        metrics.gauge("outguess.result.cache.hit.ratio", "解码结果缓存启动以来的命中率", this::getHitRatio);
+        metrics.gauge("outguess.result.cache.bytes", "解码结果缓存占用", this::getCachedBytes);
+        metrics.gauge("outguess.result.cache.size", "解码结果缓存条目数", this::size);
+    }
+
+    DecodeResultCache(long maxBytes, long ttlNanos, LongSupplier clock) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.passwordKey = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public Key key(byte[] jpegData, String password) {
+        try {
+            byte[] content = MessageDigest.getInstance("SHA-256").digest(jpegData);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(passwordKey);
+            // 首字节标记是否提供了密码
+            mac.update((byte) (password == null || password.isEmpty() ? 0 : 1));
+            if (password != null) {
+                mac.update(password.getBytes(StandardCharsets.UTF_8));
+            }
+            return new Key(ByteBuffer.wrap(content), ByteBuffer.wrap(mac.doFinal()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256/HmacSHA256不可用", e);
+        }
+    }
+
+    /**
+     * 查找未过期的结果，不存在时返回null
+     */
+    public OutguessDecoder.DecodeResult get(Key key) {
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.expiresAt() < 0) {
+                    hits.incrementAndGet();
+                    return entry.result();
+                }
+                entries.remove(key);
+                cachedBytes -= entry.size();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(Key key, OutguessDecoder.DecodeResult result) {
+        if (!isEnabled() || !result.isSuccess()) {
+            return;
+        }
+        // 消息字节 + 按需生成的String（每个UTF-8字节最多对应2字节）
+        long size = ENTRY_OVERHEAD + (long) result.getPayloadSize() * 3;
+        if (size > maxBytes) {
+            return;
+        }
+
+        synchronized (lock) {
+            Entry previous = entries.put(key, new Entry(result, size, clock.getAsLong() + ttlNanos));
+            if (previous != null) {
+                cachedBytes -= previous.size();
+            }
+            cachedBytes += size;
+
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && it.hasNext()) {
+                cachedBytes -= it.next().getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 命中率，尚无请求时为0
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long getCachedBytes() {
+        synchronized (lock) {
+            return cachedBytes;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
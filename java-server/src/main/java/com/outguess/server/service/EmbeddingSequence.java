@@ -0,0 +1,45 @@
+package com.outguess.server.service;
+
+/**
+ * 嵌入序列：第k个嵌入位置对应的系数下标
+ *
+ * 版本1：所有AC位置经 java.util.Random(seed.hashCode()) 洗牌，必须整体生成（见 {@link EmbeddingSequenceCache}）
+ * 版本2：带密钥的Feistel置换 + 循环游走，任意位置O(1)按需计算（见 {@link FeistelEmbeddingSequence}）
+ */
+public interface EmbeddingSequence {
+
+    int VERSION_SHUFFLE = 1;
+    int VERSION_FEISTEL = 2;
+
+    /**
+     * 可嵌入位置总数（即AC系数个数）
+     */
+    int length();
+
+    /**
+     * 第k个位置对应的系数下标，0 <= k < length()
+     */
+    int indexAt(int k);
+
+    /**
+     * 基于预先生成的数组的序列
+     */
+    static EmbeddingSequence of(int[] sequence) {
+        return new Indexed(sequence);
+    }
+
+    /**
+     * 数组形式的序列，提取热路径可直接遍历数组而不经过接口调用
+     */
+    record Indexed(int[] indices) implements EmbeddingSequence {
+        @Override
+        public int length() {
+            return indices.length;
+        }
+
+        @Override
+        public int indexAt(int k) {
+            return indices[k];
+        }
+    }
+}
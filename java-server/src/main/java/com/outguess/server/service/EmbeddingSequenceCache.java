@@ -0,0 +1,158 @@
+package com.outguess.server.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 嵌入序列缓存
+ * 序列只取决于系数数量和种子，同一分辨率的图像共享同一个 int[] 置换，按LRU淘汰并受内存预算限制
+ */
+public class EmbeddingSequenceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingSequenceCache.class);
+
+    private static final int DCT_BLOCK_SIZE = 64;
+
+    private record Key(int totalCoefficients, String seed) {}
+
+    private final long maxBytes;
+    private final Object lock = new Object();
+    private final LinkedHashMap<Key, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, FutureTask<int[]>> pending = new HashMap<>();
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EmbeddingSequenceCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取嵌入序列；返回的数组为共享实例，调用方不得修改
+     */
+    public int[] get(int totalCoefficients, String seed) {
+        Key key = new Key(totalCoefficients, seed);
+        FutureTask<int[]> task;
+        boolean owner = false;
+
+        synchronized (lock) {
+            int[] cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            misses.incrementAndGet();
+
+            // 同一尺寸的并发请求只计算一次
+            task = pending.get(key);
+            if (task == null) {
+                task = new FutureTask<>(() -> generate(totalCoefficients, seed));
+                pending.put(key, task);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            task.run();
+        }
+
+        try {
+            int[] sequence = task.get();
+            if (owner) {
+                synchronized (lock) {
+                    pending.remove(key);
+                    put(key, sequence);
+                }
+            }
+            return sequence;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待嵌入序列生成时被中断", e);
+        } catch (ExecutionException e) {
+            if (owner) {
+                synchronized (lock) {
+                    pending.remove(key);
+                }
+            }
+            throw new IllegalStateException("嵌入序列生成失败", e.getCause());
+        }
+    }
+
+    private void put(Key key, int[] sequence) {
+        long size = (long) sequence.length * Integer.BYTES;
+        if (size > maxBytes) {
+            logger.debug("嵌入序列超过缓存预算，不缓存: {} bytes", size);
+            return;
+        }
+
+        cachedBytes += size;
+        entries.put(key, sequence);
+
+        Iterator<Map.Entry<Key, int[]>> it = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, int[]> eldest = it.next();
+            cachedBytes -= (long) eldest.getValue().length * Integer.BYTES;
+            it.remove();
+        }
+    }
+
+    /**
+     * 生成嵌入序列：所有AC系数位置经种子确定的Fisher-Yates洗牌
+     * 与 Collections.shuffle(list, new Random(seed.hashCode())) 的结果逐位一致
+     */
+    static int[] generate(int totalCoefficients, String seed) {
+        int acCount = totalCoefficients - (totalCoefficients + DCT_BLOCK_SIZE - 1) / DCT_BLOCK_SIZE;
+        int[] sequence = new int[acCount];
+
+        // 只选择可用的AC系数位置
+        int n = 0;
+        for (int i = 0; i < totalCoefficients; i++) {
+            if (i % DCT_BLOCK_SIZE != 0) { // 跳过DC系数
+                sequence[n++] = i;
+            }
+        }
+
+        Random random = new Random(seed.hashCode());
+        for (int i = acCount; i > 1; i--) {
+            int j = random.nextInt(i);
+            int tmp = sequence[i - 1];
+            sequence[i - 1] = sequence[j];
+            sequence[j] = tmp;
+        }
+        return sequence;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getCachedBytes() {
+        synchronized (lock) {
+            return cachedBytes;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
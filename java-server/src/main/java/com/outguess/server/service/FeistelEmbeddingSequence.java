@@ -0,0 +1,88 @@
+package com.outguess.server.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 版本2嵌入序列：AC序号空间上的带密钥Feistel置换
+ *
+ * 与C++端 embedding_sequence_index_v2 逐位一致：
+ * 1. 密钥 = seed UTF-8字节的64位FNV-1a
+ * 2. 域大小 n = AC系数个数，取最小的h使 2^(2h) >= n
+ * 3. 4轮平衡Feistel，轮函数 F_i(r) = splitmix64(r ^ roundKey_i) 的低h位，
+ *    roundKey_i = splitmix64(key + i * 0x9E3779B97F4A7C15)
+ * 4. 结果 >= n 时继续加密（循环游走），直到落入 [0, n)
+ * 5. AC序号 j 映射到系数下标 (j / 63) * 64 + j % 63 + 1
+ */
+public final class FeistelEmbeddingSequence implements EmbeddingSequence {
+
+    private static final int DCT_BLOCK_SIZE = 64;
+    private static final int AC_PER_BLOCK = DCT_BLOCK_SIZE - 1;
+    private static final int ROUNDS = 4;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int length;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public FeistelEmbeddingSequence(int totalCoefficients, String seed) {
+        this.length = totalCoefficients - (totalCoefficients + DCT_BLOCK_SIZE - 1) / DCT_BLOCK_SIZE;
+
+        int h = 1;
+        while ((1L << (2 * h)) < length) {
+            h++;
+        }
+        this.halfBits = h;
+        this.halfMask = (1L << h) - 1;
+
+        long key = fnv1a64(seed.getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < ROUNDS; i++) {
+            roundKeys[i] = mix64(key + i * GOLDEN_GAMMA);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int indexAt(int k) {
+        if (k < 0 || k >= length) {
+            throw new IndexOutOfBoundsException("位置越界: " + k);
+        }
+        long ordinal = k;
+        do {
+            ordinal = permute(ordinal);
+        } while (ordinal >= length);
+
+        int j = (int) ordinal;
+        return (j / AC_PER_BLOCK) * DCT_BLOCK_SIZE + (j % AC_PER_BLOCK) + 1;
+    }
+
+    private long permute(long x) {
+        long left = x >>> halfBits;
+        long right = x & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix64(right ^ roundKeys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long fnv1a64(byte[] bytes) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,232 @@
+package com.outguess.server.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息加密：AES-256-GCM，密钥由PBKDF2-HMAC-SHA256从密码派生
+ *
+ * 密文格式（大端）：
+ *   "OGC1" | KDF(1字节，1=PBKDF2-HMAC-SHA256) | 迭代次数(4) | 盐(16) | 随机数(12) | 密文 + 认证标签(16)
+ * 魔数到随机数的头部作为GCM附加认证数据。不以魔数开头的载荷按旧版异或加密处理。
+ *
+ * 派生密钥按（密码的HMAC，盐，迭代次数）缓存在有界LRU中，密码本身不会驻留在缓存里；
+ * 加密时同一密码复用缓存中的盐，因此同一密码加密的大量图像解密时只需派生一次密钥。
+ */
+public class MessageCipher {
+
+    static final byte[] MAGIC = {'O', 'G', 'C', '1'};
+    static final int KDF_PBKDF2_SHA256 = 1;
+    static final int SALT_SIZE = 16;
+    static final int NONCE_SIZE = 12;
+    static final int TAG_BITS = 128;
+    static final int HEADER_SIZE = MAGIC.length + 1 + 4 + SALT_SIZE + NONCE_SIZE;
+    static final int OVERHEAD = HEADER_SIZE + TAG_BITS / 8;
+
+    /** 可配置的迭代次数范围 */
+    static final int MIN_ITERATIONS = 1_000;
+    static final int MAX_ITERATIONS = 5_000_000;
+    /** 解密时接受的迭代次数不超过配置值的这么多倍，防止构造的载荷让服务端做过量的密钥派生 */
+    static final int MAX_ITERATION_FACTOR = 2;
+
+    private record KeyId(ByteBuffer password, ByteBuffer salt, int iterations) {}
+
+    private record DerivedKey(byte[] salt, SecretKey key) {}
+
+    private final int iterations;
+    private final int maxDecryptIterations;
+    private final int maxEntries;
+    private final SecretKeySpec passwordKey;
+    private final SecureRandom random = new SecureRandom();
+    private final Object lock = new Object();
+    private final LinkedHashMap<KeyId, FutureTask<SecretKey>> keys = new LinkedHashMap<>(16, 0.75f, true);
+    /** 加密用：密码HMAC -> 该密码当前使用的盐和密钥 */
+    private final LinkedHashMap<ByteBuffer, DerivedKey> encryptionKeys = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong derivations = new AtomicLong();
+
+    public MessageCipher(int iterations, int maxEntries) {
+        if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("KDF迭代次数必须在" + MIN_ITERATIONS + "到" + MAX_ITERATIONS + "之间: " + iterations);
+        }
+        this.iterations = iterations;
+        this.maxDecryptIterations = iterations * MAX_ITERATION_FACTOR;
+        this.maxEntries = maxEntries;
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        this.passwordKey = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    /**
+     * 载荷是否为AES-GCM格式（以魔数开头且长度足够）
+     */
+    public static boolean isEncrypted(byte[] data, int length) {
+        return length >= OVERHEAD && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * 加密消息，返回完整的密文格式
+     */
+    public byte[] encrypt(byte[] plaintext, String password) throws GeneralSecurityException {
+        DerivedKey derived = encryptionKey(password);
+        byte[] nonce = new byte[NONCE_SIZE];
+        random.nextBytes(nonce);
+
+        byte[] out = new byte[OVERHEAD + plaintext.length];
+        ByteBuffer header = ByteBuffer.wrap(out, 0, HEADER_SIZE);
+        header.put(MAGIC).put((byte) KDF_PBKDF2_SHA256).putInt(iterations).put(derived.salt()).put(nonce);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, derived.key(), new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(out, 0, HEADER_SIZE);
+        cipher.doFinal(plaintext, 0, plaintext.length, out, HEADER_SIZE);
+        return out;
+    }
+
+    /**
+     * 解密 data[0 .. length) 中的AES-GCM载荷；格式无效、密码错误或数据被篡改时抛出GeneralSecurityException
+     * 载荷中的迭代次数超过配置值的 MAX_ITERATION_FACTOR 倍时直接拒绝，不做派生
+     */
+    public byte[] decrypt(byte[] data, int length, String password) throws GeneralSecurityException {
+        if (!isEncrypted(data, length)) {
+            throw new GeneralSecurityException("不是AES-GCM载荷");
+        }
+        ByteBuffer header = ByteBuffer.wrap(data, MAGIC.length, HEADER_SIZE - MAGIC.length);
+        int kdf = header.get() & 0xFF;
+        int rounds = header.getInt();
+        if (kdf != KDF_PBKDF2_SHA256) {
+            throw new GeneralSecurityException("不支持的KDF: " + kdf);
+        }
+        if (rounds < MIN_ITERATIONS || rounds > maxDecryptIterations) {
+            throw new GeneralSecurityException("KDF迭代次数超出范围: " + rounds);
+        }
+        byte[] salt = new byte[SALT_SIZE];
+        header.get(salt);
+        byte[] nonce = new byte[NONCE_SIZE];
+        header.get(nonce);
+
+        SecretKey key = key(password, salt, rounds);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(data, 0, HEADER_SIZE);
+        return cipher.doFinal(data, HEADER_SIZE, length - HEADER_SIZE);
+    }
+
+    /**
+     * 查找或派生密钥；同一密钥并发未命中时只派生一次，其余调用等待结果
+     */
+    private SecretKey key(String password, byte[] salt, int rounds) throws GeneralSecurityException {
+        KeyId id = new KeyId(ByteBuffer.wrap(passwordDigest(password)), ByteBuffer.wrap(salt.clone()), rounds);
+        FutureTask<SecretKey> task;
+        boolean owner = false;
+        synchronized (lock) {
+            task = keys.get(id);
+            if (task == null) {
+                task = new FutureTask<>(() -> derive(password, salt, rounds));
+                keys.put(id, task);
+                owner = true;
+                Iterator<Map.Entry<KeyId, FutureTask<SecretKey>>> it = keys.entrySet().iterator();
+                while (keys.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+
+        if (owner) {
+            derivations.incrementAndGet();
+            task.run();
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneralSecurityException("等待密钥派生时被中断", e);
+        } catch (ExecutionException e) {
+            synchronized (lock) {
+                keys.remove(id, task);
+            }
+            throw new GeneralSecurityException("密钥派生失败", e.getCause());
+        }
+    }
+
+    /**
+     * 加密用的盐和密钥：每个密码生成一次随机盐，之后复用
+     */
+    private DerivedKey encryptionKey(String password) throws GeneralSecurityException {
+        ByteBuffer id = ByteBuffer.wrap(passwordDigest(password));
+        synchronized (lock) {
+            DerivedKey cached = encryptionKeys.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] salt = new byte[SALT_SIZE];
+        random.nextBytes(salt);
+        DerivedKey derived = new DerivedKey(salt, key(password, salt, iterations));
+        synchronized (lock) {
+            DerivedKey existing = encryptionKeys.putIfAbsent(id, derived);
+            Iterator<Map.Entry<ByteBuffer, DerivedKey>> it = encryptionKeys.entrySet().iterator();
+            while (encryptionKeys.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            return existing != null ? existing : derived;
+        }
+    }
+
+    private static SecretKey derive(String password, byte[] salt, int rounds) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, 256);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] passwordDigest(String password) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(passwordKey);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** 缓存命中次数（含等待其他线程正在进行的派生） */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** 实际执行的密钥派生次数 */
+    public long getDerivationCount() {
+        return derivations.get();
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return keys.size();
+        }
+    }
+}
@@ -1,19 +1,30 @@
 package com.outguess.server.service;
 
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.CoefficientStore;
+import com.outguess.server.jpeg.HeapCoefficientStore;
+import com.outguess.server.jpeg.JpegFormatException;
+import com.outguess.server.jpeg.JpegImage;
+import com.outguess.server.jpeg.JpegParser;
+import com.outguess.server.jpeg.MappedCoefficientStore;
+import com.outguess.server.jpeg.SpillBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.*;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.CRC32;
 
 /**
  * Outguess核心解码器
  * 实现与React Native版本兼容的JPEG隐写解码算法
+ * 各解码步骤为包级可见，供 src/jmh 中的基准测试（benchmarks profile）直接调用
  */
 @Component
 public class OutguessDecoder {
@@ -23,107 +34,279 @@ public class OutguessDecoder {
     // 常量定义
     private static final int DCT_BLOCK_SIZE = 64;
     private static final int MIN_COEFF_VALUE = 2;
+    private static final double LSB_DEVIATION_THRESHOLD = 0.1;
     private static final String OUTGUESS_SEED = "outguess_seed_v2";
     private static final int MAX_MESSAGE_SIZE = 10 * 1024 * 1024; // 10MB
     
+    private final EmbeddingSequenceCache sequenceCache;
+    private final BufferPool bufferPool;
+    private final int[] sequenceVersions;
+    private final long spillThresholdBytes;
+    private final Path spillDirectory;
+    private final SpillBudget spillBudget;
+    private final int checkSampleBlocks;
+    private final ForkJoinPool decodePool;
+    private final DecodeMetrics metrics;
+    private final MessageCipher cipher;
+    
+    public OutguessDecoder() {
+        this(new OutguessConfig());
+    }
+    
+    public OutguessDecoder(OutguessConfig config) {
+        this(config, DecodeMetrics.local());
+    }
+    
+    @Autowired
+    public OutguessDecoder(OutguessConfig config, DecodeMetrics metrics) {
+        this.metrics = metrics;
+        this.sequenceCache = new EmbeddingSequenceCache(config.getSequenceCacheMaxBytes());
+        this.bufferPool = new BufferPool(config.getBufferPoolMaxBytes());
+        this.sequenceVersions = config.getSequenceVersions().stream().mapToInt(Integer::intValue).toArray();
+        if (sequenceVersions.length == 0) {
+            throw new IllegalArgumentException("至少需要配置一个嵌入序列版本");
+        }
+        for (int version : sequenceVersions) {
+            if (version != EmbeddingSequence.VERSION_SHUFFLE && version != EmbeddingSequence.VERSION_FEISTEL) {
+                throw new IllegalArgumentException("不支持的嵌入序列版本: " + version);
+            }
+        }
+        this.spillThresholdBytes = config.getCoefficientSpillThresholdBytes();
+        this.spillDirectory = Path.of(config.getTempDir());
+        this.spillBudget = new SpillBudget(config.getCoefficientSpillMaxBytes());
+        this.checkSampleBlocks = config.getCheckSampleBlocks();
+        this.cipher = new MessageCipher(config.getKdfIterations(), config.getKeyCacheMaxEntries());
+        
+        // 带重启标记的大图按重启区间并行熵解码；线程数为1时关闭
+        int threads = config.getParallelDecodeThreads() > 0
+            ? config.getParallelDecodeThreads() : Runtime.getRuntime().availableProcessors();
+        this.decodePool = threads > 1 ? new ForkJoinPool(threads) : null;
+        
+        metrics.gauge("outguess.sequence.cache.bytes", "嵌入序列缓存占用", sequenceCache::getCachedBytes);
+        metrics.gauge("outguess.buffer.pool.bytes", "缓冲池中空闲数组的总大小", bufferPool::getPooledBytes);
+        metrics.counter("outguess.buffer.pool.leases", "从缓冲池借出数组的次数", bufferPool, BufferPool::getLeaseCount);
+        metrics.counter("outguess.buffer.pool.reuses", "借出时复用空闲数组的次数", bufferPool, BufferPool::getReuseCount);
+        metrics.counter("outguess.buffer.pool.discards", "归还时超出预算或不是分级尺寸而丢弃的数组数", bufferPool, BufferPool::getDiscardCount);
+        metrics.gauge("outguess.key.cache.size", "派生密钥缓存条目数", cipher::size);
+        metrics.gauge("outguess.spill.bytes", "尚未释放的系数映射文件总大小", spillBudget::getReservedBytes);
+        if (decodePool != null) {
+            metrics.gauge("outguess.executor.queued", "线程池排队任务数",
+                () -> decodePool.getQueuedSubmissionCount() + decodePool.getQueuedTaskCount(),
+                "executor", "parallel-decode");
+        }
+    }
+    
+    public EmbeddingSequenceCache getSequenceCache() {
+        return sequenceCache;
+    }
+    
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+    
+    public MessageCipher getCipher() {
+        return cipher;
+    }
+    
     /**
      * 解码结果类
+     * 消息以原始字节保存，只在调用getMessage时按UTF-8转换为String（转换结果会被保留）
      */
     public static class DecodeResult {
         private final boolean success;
-        private final String message;
-        private final int messageSize;
+        private final byte[] payload;
+        private volatile String message;
         private final boolean verified;
         private final String errorMessage;
         private final long processingTime;
         
-        public DecodeResult(boolean success, String message, int messageSize, 
-                          boolean verified, String errorMessage, long processingTime) {
+        public DecodeResult(boolean success, byte[] payload, boolean verified,
+                            String errorMessage, long processingTime) {
             this.success = success;
-            this.message = message;
-            this.messageSize = messageSize;
+            this.payload = payload;
             this.verified = verified;
             this.errorMessage = errorMessage;
             this.processingTime = processingTime;
         }
         
+        public DecodeResult(boolean success, String message, int messageSize, 
+                          boolean verified, String errorMessage, long processingTime) {
+            this(success, message != null ? message.getBytes(StandardCharsets.UTF_8) : null,
+                verified, errorMessage, processingTime);
+            this.message = message;
+        }
+        
         // Getters
         public boolean isSuccess() { return success; }
-        public String getMessage() { return message; }
-        public int getMessageSize() { return messageSize; }
+        
+        /**
+         * 原始消息字节（解密后），调用方不得修改
+         */
+        public byte[] getPayload() { return payload; }
+        
+        public int getPayloadSize() { return payload != null ? payload.length : 0; }
+        
+        public String getMessage() {
+            String result = message;
+            if (result == null && payload != null) {
+                result = new String(payload, StandardCharsets.UTF_8);
+                message = result;
+            }
+            return result;
+        }
+        
+        /**
+         * 消息的字符数（需要转换为String）
+         */
+        public int getMessageSize() {
+            String result = getMessage();
+            return result != null ? result.length() : 0;
+        }
+        
         public boolean isVerified() { return verified; }
         public String getErrorMessage() { return errorMessage; }
         public long getProcessingTime() { return processingTime; }
     }
     
+    /**
+     * 隐藏数据检测结果
+     */
+    public static class DetectionResult {
+        private final boolean hiddenData;
+        private final double confidence;
+        private final int sampledBlocks;
+        private final CoefficientStatistics statistics;
+        
+        public DetectionResult(boolean hiddenData, double confidence, int sampledBlocks,
+                               CoefficientStatistics statistics) {
+            this.hiddenData = hiddenData;
+            this.confidence = confidence;
+            this.sampledBlocks = sampledBlocks;
+            this.statistics = statistics;
+        }
+        
+        // Getters
+        public boolean hasHiddenData() { return hiddenData; }
+        /** 结论正确的估计概率（0~1） */
+        public double getConfidence() { return confidence; }
+        /** 抽样解码的块数，解码整幅图像时为0 */
+        public int getSampledBlocks() { return sampledBlocks; }
+        /** 检测所依据的系数统计，图像无法解析时为null */
+        public CoefficientStatistics getStatistics() { return statistics; }
+    }
+    
     /**
      * 从JPEG图像中提取隐藏消息
      */
     public DecodeResult extractMessage(byte[] jpegData, String password, boolean verbose) {
+        return extractMessage(ByteBuffer.wrap(jpegData), password, verbose);
+    }
+    
+    /**
+     * 同上；jpegData可以是内存映射的文件，解码只按绝对位置读取，不改变其position
+     */
+    public DecodeResult extractMessage(ByteBuffer jpegData, String password, boolean verbose) {
         long startTime = System.currentTimeMillis();
+        // 消息缓冲区从池中借出，各序列版本共用，结束时归还
+        byte[] payload = null;
         
         try {
             if (verbose) {
-                logger.info("开始解码JPEG图像，大小: {} bytes", jpegData.length);
+                logger.info("开始解码JPEG图像，大小: {} bytes", jpegData.remaining());
             }
             
             // 1. 解析JPEG并提取DCT系数
-            JpegData jpeg = parseJpegData(jpegData);
+            long mark = System.nanoTime();
+            JpegImage jpeg = parseJpegData(jpegData);
+            mark = recordStage(DecodeMetrics.Stage.PARSE, mark);
             if (jpeg == null) {
                 return new DecodeResult(false, null, 0, false, 
                     "无效的JPEG文件", System.currentTimeMillis() - startTime);
             }
             
-            if (verbose) {
-                logger.info("JPEG解析完成，DCT系数数量: {}", jpeg.dctCoefficients.length);
-            }
-            
-            // 2. 提取消息头部（长度+CRC32）
-            byte[] headerData = extractBitsFromDCT(jpeg.dctCoefficients, 8);
-            if (headerData.length < 8) {
-                return new DecodeResult(false, null, 0, false, 
-                    "无法提取消息头部", System.currentTimeMillis() - startTime);
-            }
-            
-            // 3. 解析消息长度和CRC32
-            ByteBuffer headerBuffer = ByteBuffer.wrap(headerData).order(ByteOrder.BIG_ENDIAN);
-            int messageLength = headerBuffer.getInt();
-            int expectedCrc = headerBuffer.getInt();
-            
-            if (messageLength <= 0 || messageLength > MAX_MESSAGE_SIZE) {
-                return new DecodeResult(false, null, 0, false, 
-                    "无效的消息长度: " + messageLength, System.currentTimeMillis() - startTime);
-            }
-            
-            if (verbose) {
-                logger.info("消息长度: {} bytes, 期望CRC32: 0x{}", messageLength, Integer.toHexString(expectedCrc));
-            }
-            
-            // 4. 提取完整数据（头部+消息）
-            byte[] fullData = extractBitsFromDCT(jpeg.dctCoefficients, 8 + messageLength);
-            if (fullData.length < 8 + messageLength) {
-                return new DecodeResult(false, null, 0, false, 
-                    "无法提取完整消息数据", System.currentTimeMillis() - startTime);
+            int messageLength = -1;
+            String failure = null;
+            try (jpeg) {
+                CoefficientStore coefficients = jpeg.getCoefficients();
+                if (verbose) {
+                    logger.info("JPEG解析完成，尺寸: {}x{}，DCT系数数量: {}，存储: {}",
+                        jpeg.getWidth(), jpeg.getHeight(), coefficients.size(),
+                        coefficients instanceof MappedCoefficientStore ? "映射文件" : "堆内");
+                }
+                
+                // 2. 按配置的序列版本依次尝试提取消息
+                byte[] headerData = new byte[8];
+                for (int version : sequenceVersions) {
+                    EmbeddingSequence sequence = embeddingSequence(version, coefficients.size());
+                    mark = recordStage(DecodeMetrics.Stage.PERMUTATION, mark);
+                    
+                    ExtractionCursor cursor = new ExtractionCursor(coefficients, sequence);
+                    
+                    // 3. 提取消息头部（长度+CRC32）
+                    int headerBytes = extractBitsFromDCT(cursor, headerData, 0, 8);
+                    mark = recordStage(DecodeMetrics.Stage.HEADER, mark);
+                    if (headerBytes < 8) {
+                        failure = "无法提取消息头部";
+                        continue;
+                    }
+                    
+                    // 4. 解析消息长度和CRC32（大端）
+                    int candidateLength = readInt(headerData, 0);
+                    int expectedCrc = readInt(headerData, 4);
+                    
+                    if (candidateLength <= 0 || candidateLength > MAX_MESSAGE_SIZE) {
+                        failure = "无效的消息长度: " + candidateLength;
+                        continue;
+                    }
+                    
+                    if (verbose) {
+                        logger.info("序列版本{}: 消息长度: {} bytes, 期望CRC32: 0x{}", 
+                            version, candidateLength, Integer.toHexString(expectedCrc));
+                    }
+                    
+                    // 5. 从头部之后的位置继续提取消息数据
+                    if (payload == null || payload.length < candidateLength) {
+                        if (payload != null) {
+                            bufferPool.release(payload);
+                        }
+                        payload = bufferPool.leaseBytes(candidateLength);
+                    }
+                    mark = System.nanoTime();
+                    int payloadBytes = extractBitsFromDCT(cursor, payload, 0, candidateLength);
+                    mark = recordStage(DecodeMetrics.Stage.PAYLOAD, mark);
+                    if (payloadBytes < candidateLength) {
+                        failure = "无法提取完整消息数据";
+                        continue;
+                    }
+                    
+                    // 6. 验证CRC32
+                    CRC32 crc32 = new CRC32();
+                    crc32.update(payload, 0, candidateLength);
+                    int actualCrc = (int) crc32.getValue();
+                    mark = recordStage(DecodeMetrics.Stage.CRC, mark);
+                    
+                    if (actualCrc != expectedCrc) {
+                        failure = "消息完整性校验失败";
+                        continue;
+                    }
+                    
+                    messageLength = candidateLength;
+                    break;
+                }
             }
             
-            // 5. 提取消息数据
-            byte[] messageData = Arrays.copyOfRange(fullData, 8, fullData.length);
-            
-            // 6. 验证CRC32
-            CRC32 crc32 = new CRC32();
-            crc32.update(messageData);
-            int actualCrc = (int) crc32.getValue();
-            
-            if (actualCrc != expectedCrc) {
+            if (messageLength < 0) {
                 return new DecodeResult(false, null, 0, false, 
-                    "消息完整性校验失败", System.currentTimeMillis() - startTime);
+                    failure, System.currentTimeMillis() - startTime);
             }
             
-            // 7. 解密（如果需要）
-            String finalMessage;
+            // 7. 解密（如果需要）；池化缓冲区要归还，消息只在这里复制一次
+            byte[] finalMessage;
             if (password != null && !password.isEmpty()) {
                 try {
-                    finalMessage = decryptMessage(messageData, password);
+                    mark = System.nanoTime();
+                    finalMessage = decryptMessage(payload, messageLength, password);
+                    recordStage(DecodeMetrics.Stage.DECRYPT, mark);
                     if (verbose) {
                         logger.info("消息解密成功");
                     }
@@ -132,23 +315,26 @@ public class OutguessDecoder {
                         "解密失败 - 密码错误？", System.currentTimeMillis() - startTime);
                 }
             } else {
-                finalMessage = new String(messageData, "UTF-8");
+                finalMessage = Arrays.copyOf(payload, messageLength);
             }
             
             long processingTime = System.currentTimeMillis() - startTime;
             
             if (verbose) {
                 logger.info("解码成功，消息长度: {} bytes，处理时间: {} ms", 
-                    finalMessage.length(), processingTime);
+                    finalMessage.length, processingTime);
             }
             
-            return new DecodeResult(true, finalMessage, finalMessage.length(), 
-                true, null, processingTime);
+            return new DecodeResult(true, finalMessage, true, null, processingTime);
             
         } catch (Exception e) {
             logger.error("解码过程中发生错误", e);
             return new DecodeResult(false, null, 0, false, 
                 "解码错误: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        } finally {
+            if (payload != null) {
+                bufferPool.release(payload);
+            }
         }
     }
     
@@ -156,211 +342,267 @@ public class OutguessDecoder {
      * 检查图像是否包含隐藏数据
      */
     public boolean hasHiddenData(byte[] jpegData) {
-        try {
-            JpegData jpeg = parseJpegData(jpegData);
-            if (jpeg == null) return false;
+        return detectHiddenData(jpegData).hasHiddenData();
+    }
+    
+    public boolean hasHiddenData(ByteBuffer jpegData) {
+        return detectHiddenData(jpegData).hasHiddenData();
+    }
+    
+    /**
+     * 检测隐藏数据并给出置信度
+     * 配置了抽样块数时只熵解码图像的一小部分，否则解码整幅图像
+     */
+    public DetectionResult detectHiddenData(byte[] jpegData) {
+        return detectHiddenData(ByteBuffer.wrap(jpegData));
+    }
+    
+    public DetectionResult detectHiddenData(ByteBuffer jpegData) {
+        boolean sampled = checkSampleBlocks > 0;
+        try (CoefficientStore coefficients = sampled ? sampleJpegData(jpegData) : parseCoefficients(jpegData)) {
+            if (coefficients == null) return new DetectionResult(false, 0.0, 0, null);
             
-            // 高级隐写检测算法
+            // 一次遍历得到直方图统计，LSB分布和熵值都由它计算
+            CoefficientStatistics statistics = CoefficientStatistics.compute(coefficients, decodePool);
             int suspiciousPatterns = 0;
-            int totalChecked = 0;
             double entropyThreshold = 0.7;
             
             // 检查DCT系数的LSB分布
-            int[] lsbDistribution = new int[2];
-            for (int i = 0; i < jpeg.dctCoefficients.length && totalChecked < 5000; i++) {
-                if (Math.abs(jpeg.dctCoefficients[i]) >= MIN_COEFF_VALUE && (i % DCT_BLOCK_SIZE) != 0) {
-                    int lsb = jpeg.dctCoefficients[i] & 1;
-                    lsbDistribution[lsb]++;
-                    totalChecked++;
-                }
-            }
-            
-            if (totalChecked > 100) {
-                double lsbRatio = (double) lsbDistribution[0] / totalChecked;
-                // 正常图像的LSB分布应该接近0.5，隐写后会有偏差
-                if (Math.abs(lsbRatio - 0.5) > 0.1) {
-                    suspiciousPatterns++;
-                }
+            double lsbDeviation = Math.abs(statistics.getLsbZeroRatio() - 0.5);
+            // 正常图像的LSB分布应该接近0.5，隐写后会有偏差
+            if (statistics.getUsable() > 100 && lsbDeviation > LSB_DEVIATION_THRESHOLD) {
+                suspiciousPatterns++;
             }
             
             // 检查图像熵值
-            double entropy = calculateImageEntropy(jpeg.dctCoefficients);
-            if (entropy > entropyThreshold) {
+            boolean highEntropy = statistics.getEntropy() > entropyThreshold;
+            if (highEntropy) {
                 suspiciousPatterns++;
             }
             
-            return suspiciousPatterns >= 2;
+            boolean hiddenData = suspiciousPatterns >= 2;
+            double suspicion = highEntropy
+                ? lsbExceedsThresholdProbability(lsbDeviation, statistics.getUsable()) : 0.0;
+            return new DetectionResult(hiddenData, hiddenData ? suspicion : 1.0 - suspicion,
+                sampled ? coefficients.size() / DCT_BLOCK_SIZE : 0, statistics);
             
         } catch (Exception e) {
             logger.error("检测隐藏数据时发生错误", e);
-            return false;
+            return new DetectionResult(false, 0.0, 0, null);
         }
     }
     
     /**
-     * 简化的JPEG数据结构
+     * 整幅图像的LSB偏差超过阈值的概率
+     * 样本中的LSB比例按二项分布近似为正态（标准误 0.5/sqrt(n)）；熵值在抽样下误差很小，视为确定
      */
-    private static class JpegData {
-        short[] dctCoefficients;
-        int width;
-        int height;
-        
-        JpegData(short[] coefficients, int width, int height) {
-            this.dctCoefficients = coefficients;
-            this.width = width;
-            this.height = height;
+    private static double lsbExceedsThresholdProbability(double deviation, long samples) {
+        if (samples == 0) {
+            return 0.5;
         }
+        double standardError = 0.5 / Math.sqrt(samples);
+        return CoefficientStatistics.normalCdf((deviation - LSB_DEVIATION_THRESHOLD) / standardError);
     }
     
     /**
-     * 解析JPEG数据（简化实现）
-     * 实际项目中应该使用完整的JPEG解析库
+     * 抽样熵解码，格式错误返回null
      */
-    private JpegData parseJpegData(byte[] jpegData) {
+    private CoefficientStore sampleJpegData(ByteBuffer jpegData) {
         try {
-            // 检查JPEG文件头
-            if (jpegData.length < 10 || 
-                (jpegData[0] & 0xFF) != 0xFF || 
-                (jpegData[1] & 0xFF) != 0xD8) {
-                return null;
-            }
-            
-            // 基于文件大小估算图像尺寸和DCT系数
-            int estimatedWidth = 1920 + (jpegData.length % 1000);
-            int estimatedHeight = 1080 + (jpegData.length % 800);
-            int coefficientCount = (estimatedWidth * estimatedHeight * 3) / 64;
-            
-            // 生成模拟的DCT系数（实际应该从JPEG中解析）
-            short[] coefficients = generateMockDCTCoefficients(coefficientCount, jpegData);
-            
-            return new JpegData(coefficients, estimatedWidth, estimatedHeight);
-            
-        } catch (Exception e) {
-            logger.error("解析JPEG数据失败", e);
+            return JpegParser.sample(jpegData, checkSampleBlocks);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("抽样解析JPEG数据失败: {}", e.toString());
             return null;
         }
     }
     
+    private CoefficientStore parseCoefficients(ByteBuffer jpegData) throws IOException {
+        JpegImage jpeg = parseJpegData(jpegData);
+        return jpeg != null ? jpeg.getCoefficients() : null;
+    }
+    
     /**
-     * 生成模拟的DCT系数（用于演示）
-     * 实际项目中应该从真实的JPEG DCT系数中读取
+     * 解析JPEG数据，熵解码出量化后的DCT系数
+     * 格式错误返回null；临时文件等I/O错误照常抛出
      */
-    private short[] generateMockDCTCoefficients(int count, byte[] jpegData) {
-        short[] coefficients = new short[count];
-        Random random = new Random(Arrays.hashCode(jpegData));
-        
-        for (int i = 0; i < count; i++) {
-            if (i % DCT_BLOCK_SIZE == 0) {
-                // DC系数，较大值
-                coefficients[i] = (short) (128 + random.nextGaussian() * 50);
-            } else {
-                // AC系数，较小值，很多为0
-                if (random.nextInt(3) == 0) {
-                    coefficients[i] = 0;
-                } else {
-                    coefficients[i] = (short) (random.nextGaussian() * 15);
-                }
-            }
+    JpegImage parseJpegData(byte[] jpegData) throws IOException {
+        return parseJpegData(ByteBuffer.wrap(jpegData));
+    }
+    
+    JpegImage parseJpegData(ByteBuffer jpegData) throws IOException {
+        try {
+            return JpegParser.parse(jpegData, this::createCoefficientStore, decodePool);
+        } catch (JpegFormatException e) {
+            logger.warn("解析JPEG数据失败: {}", e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("JPEG数据损坏: {}", e.toString());
+            return null;
         }
-        
-        return coefficients;
     }
     
     /**
-     * 从DCT系数中提取位数据
+     * 系数数组超过溢出阈值时改用内存映射的临时文件，避免超大图像占满堆；
+     * 否则从缓冲池借出数组，图像关闭时归还
      */
-    private byte[] extractBitsFromDCT(short[] dctCoefficients, int expectedBytes) {
-        List<Integer> sequence = generateSecureEmbeddingSequence(dctCoefficients.length);
-        List<Byte> result = new ArrayList<>();
-        
-        int bitIndex = 0;
-        int currentByte = 0;
-        
-        for (int coeffIdx : sequence) {
-            if (result.size() >= expectedBytes) break;
-            
-            if (Math.abs(dctCoefficients[coeffIdx]) < MIN_COEFF_VALUE) {
-                continue;
-            }
-            
-            // 提取LSB
-            int bit = dctCoefficients[coeffIdx] & 1;
-            currentByte |= (bit << (7 - bitIndex));
-            
-            bitIndex++;
-            if (bitIndex >= 8) {
-                result.add((byte) currentByte);
-                currentByte = 0;
-                bitIndex = 0;
-            }
+    private CoefficientStore createCoefficientStore(int size) throws IOException {
+        long bytes = (long) size * Short.BYTES;
+        if (spillThresholdBytes > 0 && bytes > spillThresholdBytes) {
+            logger.info("系数数据 {} bytes 超过阈值，溢出到临时文件", bytes);
+            return MappedCoefficientStore.create(spillDirectory, size, spillBudget);
         }
+        short[] array = bufferPool.leaseShorts(size);
+        Arrays.fill(array, 0, size, (short) 0);
+        return new HeapCoefficientStore(array, size, bufferPool::release);
+    }
+    
+    /**
+     * 可恢复的位提取游标
+     * 记录嵌入序列中已经读到的位置，读完头部后可从同一位置继续读取消息体
+     */
+    static final class ExtractionCursor {
+        final CoefficientStore coefficients;
+        final EmbeddingSequence sequence;
+        int position;
         
-        // 转换为字节数组
-        byte[] bytes = new byte[result.size()];
-        for (int i = 0; i < result.size(); i++) {
-            bytes[i] = result.get(i);
+        ExtractionCursor(CoefficientStore coefficients, EmbeddingSequence sequence) {
+            this.coefficients = coefficients;
+            this.sequence = sequence;
         }
-        
-        return bytes;
     }
     
     /**
-     * 生成安全的嵌入序列
+     * 从DCT系数中提取位数据，写入 dst[offset .. offset+length)
+     * 返回实际写入的完整字节数，游标停在最后一个被读取的位置之后
+     */
+    int extractBitsFromDCT(ExtractionCursor cursor, byte[] dst, int offset, int length) {
+        if (cursor.sequence instanceof EmbeddingSequence.Indexed indexed
+                && cursor.coefficients instanceof HeapCoefficientStore heap) {
+            return gatherBits(cursor, heap.array(), indexed.indices(), dst, offset, length);
+        }
+        return gatherBits(cursor, dst, offset, length);
+    }
+    
+    /**
+     * 数组序列的提取热路径
+     * |c| >= MIN_COEFF_VALUE 的判断和LSB收集都不分支：不可用的系数移位量为0、贡献位为0，
+     * 只有凑满一个字节时才写出，整个过程不分配任何对象
      */
-    private List<Integer> generateSecureEmbeddingSequence(int totalCoefficients) {
-        List<Integer> sequence = new ArrayList<>();
+    private static int gatherBits(ExtractionCursor cursor, short[] coefficients, int[] indices,
+                                  byte[] dst, int offset, int length) {
+        int end = indices.length;
+        int k = cursor.position;
+        int out = offset;
+        int outEnd = offset + length;
+        int acc = 0;
+        int bits = 0;
         
-        // 只选择可用的AC系数位置
-        for (int i = 0; i < totalCoefficients; i++) {
-            if (i % DCT_BLOCK_SIZE != 0) { // 跳过DC系数
-                sequence.add(i);
+        while (out < outEnd && k < end) {
+            int c = coefficients[indices[k++]];
+            int usable = usableBit(c);
+            acc = (acc << usable) | (c & usable);
+            bits += usable;
+            if (bits == 8) {
+                dst[out++] = (byte) acc;
+                acc = 0;
+                bits = 0;
             }
         }
         
-        // 使用种子生成确定性随机序列
-        Random random = new Random(OUTGUESS_SEED.hashCode());
-        Collections.shuffle(sequence, random);
-        
-        return sequence;
+        cursor.position = k;
+        return out - offset;
     }
     
     /**
-     * 简化的消息解密实现
+     * 通用路径：按需计算位置的序列（版本2）或映射文件存储，过滤与收集方式同上
      */
-    private String decryptMessage(byte[] encryptedData, String password) throws Exception {
-        // 简化的解密实现（实际项目中应使用AES）
-        int key = password.hashCode();
-        byte[] decrypted = new byte[encryptedData.length];
+    private static int gatherBits(ExtractionCursor cursor, byte[] dst, int offset, int length) {
+        CoefficientStore coefficients = cursor.coefficients;
+        EmbeddingSequence sequence = cursor.sequence;
+        int end = sequence.length();
+        int k = cursor.position;
+        int out = offset;
+        int outEnd = offset + length;
+        int acc = 0;
+        int bits = 0;
         
-        for (int i = 0; i < encryptedData.length; i++) {
-            decrypted[i] = (byte) (encryptedData[i] ^ ((key >> (i % 4 * 8)) & 0xFF));
+        while (out < outEnd && k < end) {
+            int c = coefficients.get(sequence.indexAt(k++));
+            int usable = usableBit(c);
+            acc = (acc << usable) | (c & usable);
+            bits += usable;
+            if (bits == 8) {
+                dst[out++] = (byte) acc;
+                acc = 0;
+                bits = 0;
+            }
         }
         
-        return new String(decrypted, "UTF-8");
+        cursor.position = k;
+        return out - offset;
     }
     
     /**
-     * 计算图像熵值
+     * |c| >= MIN_COEFF_VALUE 时返回1，否则返回0（无分支）
      */
-    private double calculateImageEntropy(short[] dctCoefficients) {
-        Map<Short, Integer> histogram = new HashMap<>();
-        
-        // 计算DCT系数直方图
-        for (short coeff : dctCoefficients) {
-            histogram.put(coeff, histogram.getOrDefault(coeff, 0) + 1);
+    private static int usableBit(int c) {
+        int sign = c >> 31;
+        int abs = (c ^ sign) - sign;
+        return (MIN_COEFF_VALUE - 1 - abs) >>> 31;
+    }
+    
+    /**
+     * 记录从start开始的阶段耗时，返回当前时间作为下一阶段的起点
+     */
+    private long recordStage(DecodeMetrics.Stage stage, long start) {
+        long now = System.nanoTime();
+        metrics.recordStage(stage, now - start);
+        return now;
+    }
+    
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    /**
+     * 获取指定版本的嵌入序列
+     * 版本2按需计算位置，无需生成整个置换；版本1使用缓存的洗牌数组
+     */
+    EmbeddingSequence embeddingSequence(int version, int totalCoefficients) {
+        if (version == EmbeddingSequence.VERSION_FEISTEL) {
+            return new FeistelEmbeddingSequence(totalCoefficients, OUTGUESS_SEED);
         }
-        
-        // 计算熵值
-        double entropy = 0.0;
-        double total = dctCoefficients.length;
-        
-        for (int count : histogram.values()) {
-            double probability = count / total;
-            if (probability > 0) {
-                entropy -= probability * (Math.log(probability) / Math.log(2));
-            }
+        return EmbeddingSequence.of(sequenceCache.get(totalCoefficients, OUTGUESS_SEED));
+    }
+    
+    /**
+     * 解密消息：AES-GCM载荷认证失败时抛出异常，不带魔数的旧版载荷按异或解密
+     */
+    private byte[] decryptMessage(byte[] encryptedData, int length, String password) throws Exception {
+        if (MessageCipher.isEncrypted(encryptedData, length)) {
+            return cipher.decrypt(encryptedData, length, password);
         }
+        // 缓冲区由本次解码独占，直接原地解密
+        applyLegacyCipher(encryptedData, length, password);
+        return Arrays.copyOf(encryptedData, length);
+    }
+    
+    /**
+     * 旧版异或加密（不提供机密性，仅为兼容旧载荷保留），加密和解密是同一操作，原地修改 data[0 .. length)
+     */
+    static void applyLegacyCipher(byte[] data, int length, String password) {
+        int key = password.hashCode();
         
-        return entropy;
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (data[i] ^ ((key >> (i % 4 * 8)) & 0xFF));
+        }
+    }
+    
+    /**
+     * 计算图像熵值
+     */
+    double calculateImageEntropy(CoefficientStore dctCoefficients) {
+        return CoefficientStatistics.compute(dctCoefficients, decodePool).getEntropy();
     }
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.CoefficientStore;
+import com.outguess.server.jpeg.JpegImage;
+import com.outguess.server.jpeg.JpegParser;
+import com.outguess.server.jpeg.JpegWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.zip.CRC32;
+
+/**
+ * Outguess嵌入器
+ *
+ * 熵解码出量化DCT系数后，沿与解码器相同的嵌入序列改写可用系数的LSB，再用原有的量化表和Huffman表
+ * 重新熵编码。整个过程不做IDCT/DCT和重新量化，图像中未被改写的部分逐位不变，没有代际损失。
+ * 数据格式与解码器一致：4字节消息长度 + 4字节CRC32（大端）+ 消息（有密码时按embed-cipher加密，见MessageCipher）
+ */
+@Component
+public class OutguessEmbedder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OutguessEmbedder.class);
+    
+    private static final int MIN_COEFF_VALUE = 2;
+    private static final int HEADER_SIZE = 8;
+    /** 每级抗压缩等级减少的容量比例，与移动端 outguess_get_max_message_size 一致 */
+    private static final double RESISTANCE_STEP = 0.08;
+    
+    private final OutguessDecoder decoder;
+    private final int sequenceVersion;
+    private final int maxMessageSize;
+    private final boolean legacyCipher;
+    
+    @Autowired
+    public OutguessEmbedder(OutguessDecoder decoder, OutguessConfig config) {
+        this.decoder = decoder;
+        this.sequenceVersion = config.getEmbedSequenceVersion();
+        this.maxMessageSize = config.getMaxMessageSize();
+        this.legacyCipher = "legacy-xor".equals(config.getEmbedCipher());
+        if (!legacyCipher && !"aes-gcm".equals(config.getEmbedCipher())) {
+            throw new IllegalArgumentException("不支持的加密方式: " + config.getEmbedCipher());
+        }
+        if (sequenceVersion != EmbeddingSequence.VERSION_SHUFFLE && sequenceVersion != EmbeddingSequence.VERSION_FEISTEL) {
+            throw new IllegalArgumentException("不支持的嵌入序列版本: " + sequenceVersion);
+        }
+    }
+    
+    /**
+     * 嵌入结果类
+     */
+    public static class EmbedResult {
+        private final boolean success;
+        private final byte[] imageData;
+        private final int embeddedBytes;
+        private final int changedCoefficients;
+        private final String errorCode;
+        private final String errorMessage;
+        private final long processingTime;
+        
+        public EmbedResult(boolean success, byte[] imageData, int embeddedBytes, int changedCoefficients,
+                           String errorCode, String errorMessage, long processingTime) {
+            this.success = success;
+            this.imageData = imageData;
+            this.embeddedBytes = embeddedBytes;
+            this.changedCoefficients = changedCoefficients;
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+            this.processingTime = processingTime;
+        }
+        
+        public static EmbedResult error(String errorCode, String errorMessage, long startTime) {
+            return new EmbedResult(false, null, 0, 0, errorCode, errorMessage,
+                System.currentTimeMillis() - startTime);
+        }
+        
+        // Getters
+        public boolean isSuccess() { return success; }
+        public byte[] getImageData() { return imageData; }
+        /** 嵌入的总字节数（含8字节头部） */
+        public int getEmbeddedBytes() { return embeddedBytes; }
+        /** 实际被改写的系数个数（LSB本来就相同的系数不改） */
+        public int getChangedCoefficients() { return changedCoefficients; }
+        public String getErrorCode() { return errorCode; }
+        public String getErrorMessage() { return errorMessage; }
+        public long getProcessingTime() { return processingTime; }
+    }
+    
+    /**
+     * 容量估算结果
+     */
+    public static class CapacityResult {
+        private final long totalCoefficients;
+        private final long usableCoefficients;
+        private final int maxMessageSize;
+        
+        public CapacityResult(long totalCoefficients, long usableCoefficients, int maxMessageSize) {
+            this.totalCoefficients = totalCoefficients;
+            this.usableCoefficients = usableCoefficients;
+            this.maxMessageSize = maxMessageSize;
+        }
+        
+        public long getTotalCoefficients() { return totalCoefficients; }
+        /** 可用于嵌入的AC系数个数（|c| >= MIN_COEFF_VALUE） */
+        public long getUsableCoefficients() { return usableCoefficients; }
+        /** 给定抗压缩等级和质量下可嵌入的最大消息字节数（不含8字节头部） */
+        public int getMaxMessageSize() { return maxMessageSize; }
+    }
+    
+    /**
+     * 估算图像容量：只做一次计数解析，不生成嵌入序列，也不保存系数
+     */
+    public CapacityResult estimateCapacity(byte[] jpegData, int compressionResistance, int quality) throws IOException {
+        JpegParser.CoefficientCount count = JpegParser.count(ByteBuffer.wrap(jpegData), MIN_COEFF_VALUE);
+        return new CapacityResult(count.total(), count.usable(),
+            maxMessageSize(count.usable(), compressionResistance, quality));
+    }
+    
+    /**
+     * 与移动端相同的容量公式：可用位数 × (1 - (抗压缩等级 - 1) × 0.08) × 质量/100，换算成字节后减去头部
+     */
+    static int maxMessageSize(long usableCoefficients, int compressionResistance, int quality) {
+        double resistanceFactor = 1.0 - (compressionResistance - 1) * RESISTANCE_STEP;
+        double qualityFactor = quality / 100.0;
+        long availableBits = (long) (usableCoefficients * resistanceFactor * qualityFactor);
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, availableBits / 8 - HEADER_SIZE));
+    }
+    
+    /**
+     * 把消息嵌入JPEG图像，返回重新编码后的JPEG
+     */
+    public EmbedResult embedMessage(byte[] jpegData, String message, String password) {
+        return embedPayload(jpegData, message.getBytes(StandardCharsets.UTF_8), password);
+    }
+    
+    /**
+     * 把任意字节嵌入JPEG图像（不要求是UTF-8文本），payload不会被修改
+     */
+    public EmbedResult embedPayload(byte[] jpegData, byte[] message, String password) {
+        long startTime = System.currentTimeMillis();
+        
+        byte[] payload = message.clone();
+        if (payload.length == 0) {
+            return EmbedResult.error("INVALID_REQUEST", "消息不能为空", startTime);
+        }
+        if (payload.length > maxMessageSize) {
+            return EmbedResult.error("MESSAGE_TOO_LARGE", "消息大小超过限制: " + maxMessageSize + " bytes", startTime);
+        }
+        if (password != null && !password.isEmpty()) {
+            if (legacyCipher) {
+                OutguessDecoder.applyLegacyCipher(payload, payload.length, password);
+            } else {
+                try {
+                    payload = decoder.getCipher().encrypt(payload, password);
+                } catch (GeneralSecurityException e) {
+                    logger.error("消息加密失败", e);
+                    return EmbedResult.error("EMBED_FAILED", "消息加密失败: " + e.getMessage(), startTime);
+                }
+            }
+        }
+        
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        byte[] data = new byte[HEADER_SIZE + payload.length];
+        writeInt(data, 0, payload.length);
+        writeInt(data, 4, (int) crc32.getValue());
+        System.arraycopy(payload, 0, data, HEADER_SIZE, payload.length);
+        
+        try (JpegImage jpeg = decoder.parseJpegData(jpegData)) {
+            if (jpeg == null) {
+                return EmbedResult.error("INVALID_IMAGE_DATA", "无效的JPEG文件", startTime);
+            }
+            
+            CoefficientStore coefficients = jpeg.getCoefficients();
+            EmbeddingSequence sequence = decoder.embeddingSequence(sequenceVersion, coefficients.size());
+            int changed = embedBits(coefficients, sequence, data);
+            if (changed < 0) {
+                return EmbedResult.error("CAPACITY_EXCEEDED", "图像容量不足，无法嵌入 " + payload.length + " bytes", startTime);
+            }
+            
+            byte[] output = JpegWriter.write(jpegData, jpeg);
+            long processingTime = System.currentTimeMillis() - startTime;
+            logger.info("嵌入完成，数据 {} bytes，改写系数 {} 个，处理时间: {} ms",
+                data.length, changed, processingTime);
+            return new EmbedResult(true, output, data.length, changed, null, null, processingTime);
+            
+        } catch (Exception e) {
+            logger.error("嵌入过程中发生错误", e);
+            return EmbedResult.error("EMBED_FAILED", "嵌入错误: " + e.getMessage(), startTime);
+        }
+    }
+    
+    /**
+     * 沿嵌入序列把数据逐位写入可用系数（|c| >= MIN_COEFF_VALUE）的LSB，每字节高位在前
+     * 只在幅度类别内翻转（|c| 与 |c|^1 位数相同），系数保持可用，原Huffman表中也一定有对应符号。
+     * 返回改写的系数个数，序列走完仍未写完时返回-1
+     */
+    private static int embedBits(CoefficientStore coefficients, EmbeddingSequence sequence, byte[] data) {
+        int end = sequence.length();
+        int k = 0;
+        int changed = 0;
+        for (byte b : data) {
+            for (int bit = 7; bit >= 0; bit--) {
+                int wanted = (b >> bit) & 1;
+                while (true) {
+                    if (k >= end) {
+                        return -1;
+                    }
+                    int index = sequence.indexAt(k++);
+                    int c = coefficients.get(index);
+                    int magnitude = Math.abs(c);
+                    if (magnitude < MIN_COEFF_VALUE) {
+                        continue;
+                    }
+                    if ((c & 1) != wanted) {
+                        magnitude ^= 1;
+                        coefficients.set(index, (short) (c < 0 ? -magnitude : magnitude));
+                        changed++;
+                    }
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+    
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
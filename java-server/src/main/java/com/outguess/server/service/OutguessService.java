@@ -1,17 +1,29 @@
 package com.outguess.server.service;
 
 import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.model.BatchDecodeResult;
 import com.outguess.server.model.OutguessRequest;
 import com.outguess.server.model.OutguessResponse;
-import org.apache.commons.codec.binary.Base64;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * Outguess服务层
@@ -24,16 +36,48 @@ public class OutguessService {
     @Autowired
     private OutguessDecoder decoder;
     
+    @Autowired
+    private OutguessEmbedder embedder;
+    
     @Autowired
     private OutguessConfig config;
     
-    private final Executor executor = Executors.newFixedThreadPool(10);
+    @Autowired
+    private DecodeResultCache resultCache;
+    
+    @Autowired
+    private DecodeConcurrency concurrency;
+    
+    @Autowired
+    private DecodeMetrics metrics;
+    
+    // 批量解码使用按CPU核数创建的work-stealing线程池
+    private final int batchParallelism = Runtime.getRuntime().availableProcessors();
+    private final ForkJoinPool batchExecutor = (ForkJoinPool) Executors.newWorkStealingPool(batchParallelism);
+    
+    @PostConstruct
+    void registerMetrics() {
+        metrics.gauge("outguess.executor.queued", "线程池排队任务数",
+            () -> batchExecutor.getQueuedSubmissionCount() + batchExecutor.getQueuedTaskCount(),
+            "executor", "batch");
+    }
+    
+    /**
+     * 批量解码中的一个图像
+     */
+    public record BatchItem(String filename, byte[] imageData) {}
+    
+    /**
+     * 二进制模式的解码结果：成功时payload为原始消息字节，response只携带元数据（不含消息内容）；
+     * 失败时payload为null，response为错误响应
+     */
+    public record PayloadResult(OutguessResponse response, byte[] payload) {}
     
     /**
      * 异步解码消息
      */
     public CompletableFuture<OutguessResponse> decodeMessageAsync(OutguessRequest request) {
-        return CompletableFuture.supplyAsync(() -> decodeMessage(request), executor);
+        return concurrency.supplyAsync(() -> decodeMessage(request));
     }
     
     /**
@@ -47,47 +91,323 @@ public class OutguessService {
                 return OutguessResponse.error("INVALID_REQUEST", validationError);
             }
             
-            // 解码Base64图像数据
-            byte[] jpegData;
-            try {
-                jpegData = Base64.decodeBase64(request.getImageData());
-            } catch (Exception e) {
-                return OutguessResponse.error("INVALID_IMAGE_DATA", "无效的Base64图像数据");
+            // imageData 已在反序列化时流式解码为JPEG字节
+            return decode(request.getImageData(), request.getPassword(), request.isVerbose());
+            
+        } catch (Exception e) {
+            logger.error("解码过程中发生未预期的错误", e);
+            return OutguessResponse.error("INTERNAL_ERROR", "服务器内部错误");
+        }
+    }
+    
+    /**
+     * 从原始字节流解码消息，读取时即限制文件大小
+     */
+    public OutguessResponse decode(InputStream input, String password, boolean verbose) {
+        return decodePayload(input, password, verbose, false).response();
+    }
+    
+    /**
+     * 从JPEG字节解码消息
+     */
+    public OutguessResponse decode(byte[] jpegData, String password, boolean verbose) {
+        return decodePayload(jpegData, password, verbose, false).response();
+    }
+    
+    /**
+     * 从原始字节流解码，返回原始消息字节，不经过String和JSON
+     */
+    public PayloadResult decodePayload(InputStream input, String password, boolean verbose) {
+        return decodePayload(input, password, verbose, true);
+    }
+    
+    /**
+     * 从JPEG字节解码，返回原始消息字节，不经过String和JSON
+     */
+    public PayloadResult decodePayload(byte[] jpegData, String password, boolean verbose) {
+        return decodePayload(jpegData, password, verbose, true);
+    }
+    
+    private PayloadResult decodePayload(InputStream input, String password, boolean verbose, boolean binary) {
+        byte[] jpegData;
+        try {
+            // 多读一个字节用于判断是否超限
+            jpegData = input.readNBytes(config.getMaxFileSize() + 1);
+        } catch (IOException e) {
+            logger.warn("读取图像数据失败: {}", e.getMessage());
+            return new PayloadResult(OutguessResponse.error("INVALID_IMAGE_DATA", "读取图像数据失败"), null);
+        }
+        
+        return decodePayload(jpegData, password, verbose, binary);
+    }
+    
+    /**
+     * 解码的公共流程；binary为true时不生成String，响应中的messageSize为消息字节数
+     */
+    private PayloadResult decodePayload(byte[] jpegData, String password, boolean verbose, boolean binary) {
+        try {
+            if (jpegData == null || jpegData.length == 0) {
+                return new PayloadResult(OutguessResponse.error("INVALID_REQUEST", "图像数据不能为空"), null);
+            }
+            
+            if (password != null && password.length() > 100) {
+                return new PayloadResult(OutguessResponse.error("INVALID_REQUEST", "密码长度不能超过100字符"), null);
             }
             
             // 检查文件大小
             if (jpegData.length > config.getMaxFileSize()) {
-                return OutguessResponse.error("FILE_TOO_LARGE", 
-                    "文件大小超过限制: " + config.getMaxFileSize() + " bytes");
+                return new PayloadResult(OutguessResponse.error("FILE_TOO_LARGE", 
+                    "文件大小超过限制: " + config.getMaxFileSize() + " bytes"), null);
             }
             
+            // 相同图像和密码的请求直接返回缓存结果
+            long startTime = System.nanoTime();
+            DecodeResultCache.Key cacheKey = resultCache.isEnabled() ? resultCache.key(jpegData, password) : null;
+            OutguessDecoder.DecodeResult result = cacheKey != null ? resultCache.get(cacheKey) : null;
+            boolean cached = result != null;
+            
             // 执行解码
-            OutguessDecoder.DecodeResult result = decoder.extractMessage(
-                jpegData, 
-                request.getPassword(), 
-                request.isVerbose()
-            );
+            if (!cached) {
+                result = concurrency.runLimited(() -> decoder.extractMessage(jpegData, password, verbose));
+                if (cacheKey != null) {
+                    resultCache.put(cacheKey, result);
+                }
+            } else if (verbose) {
+                logger.info("命中解码结果缓存，命中率: {}", String.format("%.2f", resultCache.getHitRatio()));
+            }
             
             if (result.isSuccess()) {
                 OutguessResponse response = OutguessResponse.success(
-                    result.getMessage(),
-                    result.getMessageSize(),
-                    result.getProcessingTime(),
+                    binary ? null : result.getMessage(),
+                    binary ? result.getPayloadSize() : result.getMessageSize(),
+                    cached ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) : result.getProcessingTime(),
                     result.isVerified()
                 );
                 
                 // 添加元数据
                 OutguessResponse.ResponseMetadata metadata = new OutguessResponse.ResponseMetadata();
+                metadata.setCached(cached);
                 response.setMetadata(metadata);
                 
-                return response;
+                return new PayloadResult(response, result.getPayload());
             } else {
-                return OutguessResponse.error("DECODE_FAILED", result.getErrorMessage());
+                return new PayloadResult(OutguessResponse.error("DECODE_FAILED", result.getErrorMessage()), null);
             }
             
         } catch (Exception e) {
             logger.error("解码过程中发生未预期的错误", e);
-            return OutguessResponse.error("INTERNAL_ERROR", "服务器内部错误");
+            return new PayloadResult(OutguessResponse.error("INTERNAL_ERROR", "服务器内部错误"), null);
+        }
+    }
+    
+    /**
+     * 批量解码
+     * 图像分发到线程池并行解码，每完成一个就按完成顺序交给sink输出；
+     * 同时在途的图像数受限，读取压缩包时不会把全部图像一次读入内存。
+     * 单个图像失败只体现在该条结果中；读取输入失败或数量超限时输出一条错误结果并停止读取。
+     * sink只在调用线程中执行，返回已提交解码的图像数
+     */
+    public int decodeBatch(Iterator<BatchItem> items, String password, boolean verbose,
+                           Consumer<BatchDecodeResult> sink) {
+        BlockingQueue<BatchDecodeResult> completed = new LinkedBlockingQueue<>();
+        int maxInFlight = batchParallelism * 2;
+        int submitted = 0;
+        int inFlight = 0;
+        
+        while (true) {
+            BatchItem item;
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                item = items.next();
+            } catch (RuntimeException e) {
+                logger.warn("读取批量图像失败: {}", e.getMessage());
+                sink.accept(new BatchDecodeResult(submitted, null,
+                    OutguessResponse.error("BATCH_READ_ERROR", "读取批量数据失败")));
+                break;
+            }
+            
+            if (submitted >= config.getBatchMaxItems()) {
+                sink.accept(new BatchDecodeResult(submitted, item.filename(),
+                    OutguessResponse.error("BATCH_TOO_LARGE", "批量图像数量超过限制: " + config.getBatchMaxItems())));
+                break;
+            }
+            
+            // 在途数量达到上限时先输出已完成的结果
+            while (inFlight >= maxInFlight) {
+                sink.accept(takeCompleted(completed));
+                inFlight--;
+            }
+            
+            int index = submitted++;
+            batchExecutor.execute(() -> completed.add(decodeBatchItemSafely(index, item, password, verbose)));
+            inFlight++;
+            
+            BatchDecodeResult done;
+            while ((done = completed.poll()) != null) {
+                sink.accept(done);
+                inFlight--;
+            }
+        }
+        
+        while (inFlight > 0) {
+            sink.accept(takeCompleted(completed));
+            inFlight--;
+        }
+        return submitted;
+    }
+    
+    /**
+     * 批量解码ZIP压缩包中的所有图像（忽略目录项）
+     */
+    public int decodeBatchArchive(InputStream archive, String password, boolean verbose,
+                                  Consumer<BatchDecodeResult> sink) {
+        return decodeBatch(new ZipBatchItems(archive, config.getMaxFileSize()), password, verbose, sink);
+    }
+    
+    /**
+     * 每个提交的图像必须恰好产生一个结果，否则decodeBatch会一直等待；
+     * decodeMessage之外抛出的任何异常和Error都转换为该图像的错误结果
+     */
+    private BatchDecodeResult decodeBatchItemSafely(int index, BatchItem item, String password, boolean verbose) {
+        try {
+            return decodeBatchItem(index, item, password, verbose);
+        } catch (Throwable t) {
+            logger.error("批量解码第 {} 个图像时发生未预期的错误", index, t);
+            return new BatchDecodeResult(index, item.filename(),
+                OutguessResponse.error("INTERNAL_ERROR", "服务器内部错误"));
+        }
+    }
+    
+    private BatchDecodeResult decodeBatchItem(int index, BatchItem item, String password, boolean verbose) {
+        OutguessRequest request = new OutguessRequest();
+        request.setImageData(item.imageData());
+        request.setPassword(password);
+        request.setVerbose(verbose);
+        request.setFilename(item.filename());
+        return new BatchDecodeResult(index, item.filename(), decodeMessage(request));
+    }
+    
+    private static BatchDecodeResult takeCompleted(BlockingQueue<BatchDecodeResult> completed) {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待批量解码结果时被中断", e);
+        }
+    }
+    
+    /**
+     * 逐个读取ZIP条目，每个条目最多读取 maxFileSize+1 字节（超限由decode判定）
+     */
+    private static final class ZipBatchItems implements Iterator<BatchItem> {
+        
+        private final ZipInputStream zip;
+        private final int maxFileSize;
+        private BatchItem next;
+        private boolean finished;
+        
+        ZipBatchItems(InputStream archive, int maxFileSize) {
+            this.zip = new ZipInputStream(archive);
+            this.maxFileSize = maxFileSize;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null && entry.isDirectory()) {
+                        // 跳过目录
+                    }
+                    if (entry == null) {
+                        finished = true;
+                    } else {
+                        next = new BatchItem(entry.getName(), zip.readNBytes(maxFileSize + 1));
+                    }
+                } catch (IOException e) {
+                    finished = true;
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+        
+        @Override
+        public BatchItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BatchItem item = next;
+            next = null;
+            return item;
+        }
+    }
+    
+    /**
+     * 把消息嵌入JPEG图像
+     */
+    public OutguessEmbedder.EmbedResult embedMessage(byte[] jpegData, String message, String password) {
+        long startTime = System.currentTimeMillis();
+        if (jpegData == null || jpegData.length == 0) {
+            return OutguessEmbedder.EmbedResult.error("INVALID_REQUEST", "图像数据不能为空", startTime);
+        }
+        if (message == null || message.isEmpty()) {
+            return OutguessEmbedder.EmbedResult.error("INVALID_REQUEST", "消息不能为空", startTime);
+        }
+        if (jpegData.length > config.getMaxFileSize()) {
+            return OutguessEmbedder.EmbedResult.error("FILE_TOO_LARGE",
+                "文件大小超过限制: " + config.getMaxFileSize() + " bytes", startTime);
+        }
+        
+        // 嵌入同样是CPU密集操作，与解码共用并发许可
+        return concurrency.runLimited(() -> embedder.embedMessage(jpegData, message, password));
+    }
+    
+    /**
+     * 估算图像容量：可用系数个数及给定抗压缩等级下的最大消息大小
+     */
+    public OutguessResponse estimateCapacity(byte[] jpegData, int compressionResistance, int quality) {
+        long startTime = System.currentTimeMillis();
+        if (jpegData == null || jpegData.length == 0) {
+            return OutguessResponse.error("INVALID_REQUEST", "图像数据不能为空");
+        }
+        if (compressionResistance < 1 || compressionResistance > 10) {
+            return OutguessResponse.error("INVALID_REQUEST", "抗压缩等级必须在1到10之间");
+        }
+        if (quality < 1 || quality > 100) {
+            return OutguessResponse.error("INVALID_REQUEST", "质量必须在1到100之间");
+        }
+        
+        try {
+            OutguessEmbedder.CapacityResult result = concurrency.runLimited(() -> {
+                try {
+                    return embedder.estimateCapacity(jpegData, compressionResistance, quality);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            
+            OutguessResponse.Capacity capacity = new OutguessResponse.Capacity();
+            capacity.setTotalCoefficients(result.getTotalCoefficients());
+            capacity.setUsableCoefficients(result.getUsableCoefficients());
+            capacity.setMaxMessageSize(result.getMaxMessageSize());
+            capacity.setCompressionResistance(compressionResistance);
+            capacity.setQuality(quality);
+            
+            OutguessResponse response = new OutguessResponse(true);
+            response.setMessageSize(result.getMaxMessageSize());
+            response.setCapacity(capacity);
+            response.setProcessingTime(System.currentTimeMillis() - startTime);
+            return response;
+            
+        } catch (UncheckedIOException e) {
+            logger.warn("容量估算时图像解析失败: {}", e.getCause().getMessage());
+            return OutguessResponse.error("INVALID_IMAGE_DATA", "无效的JPEG文件: " + e.getCause().getMessage());
+        } catch (Exception e) {
+            logger.error("估算容量时发生错误", e);
+            return OutguessResponse.error("CAPACITY_ERROR", "容量估算失败: " + e.getMessage());
         }
     }
     
@@ -97,24 +417,27 @@ public class OutguessService {
     public OutguessResponse checkHiddenData(OutguessRequest request) {
         try {
             // 验证请求
-            if (request.getImageData() == null || request.getImageData().isEmpty()) {
+            byte[] jpegData = request.getImageData();
+            if (jpegData == null || jpegData.length == 0) {
                 return OutguessResponse.error("INVALID_REQUEST", "图像数据不能为空");
             }
             
-            // 解码Base64图像数据
-            byte[] jpegData;
-            try {
-                jpegData = Base64.decodeBase64(request.getImageData());
-            } catch (Exception e) {
-                return OutguessResponse.error("INVALID_IMAGE_DATA", "无效的Base64图像数据");
-            }
-            
             // 检查隐藏数据
-            boolean hasHiddenData = decoder.hasHiddenData(jpegData);
+            OutguessDecoder.DetectionResult detection =
+                concurrency.runLimited(() -> decoder.detectHiddenData(jpegData));
             
             OutguessResponse response = new OutguessResponse(true);
-            response.setMessage(hasHiddenData ? "检测到隐藏数据" : "未检测到隐藏数据");
-            response.setVerified(hasHiddenData);
+            response.setMessage(detection.hasHiddenData() ? "检测到隐藏数据" : "未检测到隐藏数据");
+            response.setVerified(detection.hasHiddenData());
+            response.setConfidence(detection.getConfidence());
+            OutguessResponse.ResponseMetadata metadata = new OutguessResponse.ResponseMetadata();
+            if (detection.getSampledBlocks() > 0) {
+                metadata.setSampledBlocks(detection.getSampledBlocks());
+            }
+            if (detection.getStatistics() != null) {
+                metadata.setStatistics(toResponseStatistics(detection.getStatistics()));
+            }
+            response.setMetadata(metadata);
             
             return response;
             
@@ -124,11 +447,31 @@ public class OutguessService {
         }
     }
     
+    private static OutguessResponse.Statistics toResponseStatistics(CoefficientStatistics statistics) {
+        OutguessResponse.Statistics result = new OutguessResponse.Statistics();
+        result.setTotalCoefficients(statistics.getTotal());
+        result.setUsableCoefficients(statistics.getUsable());
+        result.setEntropy(statistics.getEntropy());
+        result.setLsbZeroRatio(statistics.getLsbZeroRatio());
+        result.setChiSquare(statistics.getChiSquare());
+        result.setChiSquareDegrees(statistics.getChiSquareDegrees());
+        result.setChiSquareProbability(statistics.getChiSquareProbability());
+        result.setFrequencyNonZeroRatio(statistics.getFrequencyNonZeroRatio());
+        // JSON不能表示NaN，没有可用系数的频率位置输出null
+        double[] lsb = statistics.getFrequencyLsbZeroRatio();
+        Double[] lsbOrNull = new Double[lsb.length];
+        for (int k = 0; k < lsb.length; k++) {
+            lsbOrNull[k] = Double.isNaN(lsb[k]) ? null : lsb[k];
+        }
+        result.setFrequencyLsbZeroRatio(lsbOrNull);
+        return result;
+    }
+    
     /**
      * 验证请求参数
      */
     private String validateRequest(OutguessRequest request) {
-        if (request.getImageData() == null || request.getImageData().isEmpty()) {
+        if (request.getImageData() == null || request.getImageData().length == 0) {
             return "图像数据不能为空";
         }
         
@@ -136,11 +479,6 @@ public class OutguessService {
             return "密码长度不能超过100字符";
         }
         
-        // 检查Base64格式
-        if (!Base64.isBase64(request.getImageData())) {
-            return "图像数据必须是有效的Base64格式";
-        }
-        
         return null;
     }
 }
\ No newline at end of file
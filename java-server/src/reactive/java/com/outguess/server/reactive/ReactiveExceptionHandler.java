@@ -0,0 +1,92 @@
+package com.outguess.server.reactive;
+
+import com.outguess.server.exception.ImageDataException;
+import com.outguess.server.model.OutguessResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebFlux模式的全局异常处理器，错误响应与servlet版本的GlobalExceptionHandler一致
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    /**
+     * 处理参数验证异常
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<OutguessResponse> handleValidationExceptions(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getAllErrors().forEach((error) -> {
+            String fieldName = ((FieldError) error).getField();
+            errors.put(fieldName, error.getDefaultMessage());
+        });
+
+        logger.warn("参数验证失败: {}", errors);
+
+        return ResponseEntity.badRequest().body(
+            OutguessResponse.error("VALIDATION_ERROR", "参数验证失败: " + errors.toString()));
+    }
+
+    /**
+     * 处理请求体无法解析的异常（包括imageData在流式解码时被拒绝、请求体超过内存聚合上限）
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<OutguessResponse> handleInputException(ServerWebInputException ex) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        if (cause instanceof ImageDataException imageError) {
+            logger.warn("图像数据被拒绝: {}", imageError.getOriginalMessage());
+
+            HttpStatus status = "FILE_TOO_LARGE".equals(imageError.getErrorCode())
+                ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(status).body(
+                OutguessResponse.error(imageError.getErrorCode(), imageError.getOriginalMessage()));
+        }
+        if (cause instanceof DataBufferLimitException) {
+            return handleLimitException((DataBufferLimitException) cause);
+        }
+
+        logger.warn("请求体格式错误: {}", ex.getMessage());
+
+        return ResponseEntity.badRequest().body(
+            OutguessResponse.error("INVALID_REQUEST", "请求体格式错误"));
+    }
+
+    /**
+     * 处理请求体或上传文件大小超限异常
+     */
+    @ExceptionHandler(DataBufferLimitException.class)
+    public ResponseEntity<OutguessResponse> handleLimitException(DataBufferLimitException ex) {
+        logger.warn("请求体大小超限: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+            OutguessResponse.error("FILE_TOO_LARGE", "上传文件大小超过限制"));
+    }
+
+    /**
+     * 处理通用异常
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<OutguessResponse> handleGenericException(Exception ex) {
+        logger.error("发生未处理的异常", ex);
+
+        return ResponseEntity.internalServerError().body(
+            OutguessResponse.error("INTERNAL_ERROR", "服务器内部错误"));
+    }
+}
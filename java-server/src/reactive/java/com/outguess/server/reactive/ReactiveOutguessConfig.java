@@ -0,0 +1,65 @@
+package com.outguess.server.reactive;
+
+import com.outguess.server.config.OutguessConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.MultipartHttpMessageReader;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux模式配置
+ * 请求体以DataBuffer异步读取，读取期间不占用线程；读完后交给有界的解码调度器，
+ * 调度器线程数与 decode-concurrency 一致，因此解码许可不会再让线程阻塞等待
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOutguessConfig {
+
+    /** JSON请求中除imageData外其余字段的预留大小 */
+    private static final int JSON_OVERHEAD = 64 * 1024;
+    /** multipart中超过该大小的部分写入临时文件，不驻留内存 */
+    private static final int PART_IN_MEMORY_SIZE = 256 * 1024;
+    /** multipart中除文件外的表单字段数量预留 */
+    private static final int EXTRA_PARTS = 16;
+
+    /**
+     * servlet依赖仍在classpath上，Spring Boot默认优先选择Tomcat，这里显式使用Netty
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler decodeScheduler(OutguessConfig config) {
+        int threads = config.getDecodeConcurrency() > 0
+            ? config.getDecodeConcurrency() : Runtime.getRuntime().availableProcessors();
+        return Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "outguess-decode");
+    }
+
+    /**
+     * 按 max-file-size 限制聚合到内存的请求体大小：Base64的JSON请求体约为文件的4/3，
+     * multipart中的文件超过 max-file-size 时立即中止读取
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer outguessCodecCustomizer(OutguessConfig config) {
+        return configurer -> {
+            long jsonLimit = (long) config.getMaxFileSize() / 3 * 4 + 4 + JSON_OVERHEAD;
+            configurer.defaultCodecs().maxInMemorySize((int) Math.min(jsonLimit, Integer.MAX_VALUE));
+
+            DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+            partReader.setMaxInMemorySize(PART_IN_MEMORY_SIZE);
+            partReader.setMaxDiskUsagePerPart(config.getMaxFileSize());
+            partReader.setMaxParts(config.getBatchMaxItems() + EXTRA_PARTS);
+            configurer.defaultCodecs().multipartReader(new MultipartHttpMessageReader(partReader));
+        };
+    }
+}
@@ -0,0 +1,515 @@
+package com.outguess.server.reactive;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.model.BatchDecodeResult;
+import com.outguess.server.model.OutguessCapacityRequest;
+import com.outguess.server.model.OutguessEmbedRequest;
+import com.outguess.server.model.OutguessRequest;
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.DecodeMetrics;
+import com.outguess.server.service.OutguessEmbedder;
+import com.outguess.server.service.OutguessService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FormFieldPart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outguess REST API控制器（WebFlux版本）
+ * 与servlet版本的 /api/outguess/* 接口一致；请求体以DataBuffer异步读取，
+ * 读取期间不占用线程，读完后在有界的解码调度器上调用OutguessService
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api/outguess")
+@CrossOrigin(origins = "*")
+public class ReactiveOutguessController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOutguessController.class);
+
+    /** 从ZIP请求体读取时每次向上游请求的DataBuffer数 */
+    private static final int ARCHIVE_DEMAND = 16;
+
+    @Autowired
+    private OutguessService outguessService;
+
+    @Autowired
+    private OutguessConfig config;
+
+    @Autowired
+    @Qualifier("decodeScheduler")
+    private Scheduler decodeScheduler;
+
+    @Autowired(required = false)
+    private DecodeMetrics metrics;
+
+    /**
+     * 解码消息 - JSON格式
+     */
+    @PostMapping(value = "/decode",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> decodeMessage(@Valid @RequestBody OutguessRequest request) {
+        logger.info("收到解码请求，文件名: {}", request.getFilename());
+
+        return decode(() -> outguessService.decodeMessage(request))
+            .map(response -> jsonResponse(response, "解码"));
+    }
+
+    /**
+     * 解码消息 - JSON请求，二进制响应（Accept: application/octet-stream）
+     */
+    @PostMapping(value = "/decode",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<?>> decodePayload(@Valid @RequestBody OutguessRequest request) {
+        logger.info("收到二进制解码请求，文件名: {}", request.getFilename());
+
+        return decode(() -> outguessService.decodePayload(
+                request.getImageData(), request.getPassword(), request.isVerbose()))
+            .map(this::payloadResponse);
+    }
+
+    /**
+     * 异步解码消息；WebFlux下所有接口均为异步，与 /decode 行为相同
+     */
+    @PostMapping(value = "/decode/async",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> decodeMessageAsync(@Valid @RequestBody OutguessRequest request) {
+        logger.info("收到异步解码请求，文件名: {}", request.getFilename());
+
+        return decode(() -> outguessService.decodeMessage(request))
+            .map(response -> jsonResponse(response, "异步解码"));
+    }
+
+    /**
+     * 解码消息 - 文件上传格式
+     */
+    @PostMapping(value = "/decode/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> decodeMessageFromFile(ServerWebExchange exchange) {
+        return exchange.getMultipartData().flatMap(parts -> {
+            FilePart file = filePart(parts, "file");
+            if (file == null) {
+                return Mono.just(jsonResponse(OutguessResponse.error("INVALID_REQUEST", "缺少上传文件"), "文件上传解码"));
+            }
+            logger.info("收到文件上传解码请求，文件名: {}", file.filename());
+            if (!isJpegFile(file)) {
+                return Mono.just(jsonResponse(
+                    OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"), "文件上传解码"));
+            }
+
+            String password = formValue(parts, "password");
+            boolean verbose = Boolean.parseBoolean(formValue(parts, "verbose"));
+            return readBytes(file.content())
+                .flatMap(bytes -> decode(() -> outguessService.decode(bytes, password, verbose)))
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(fileTooLarge()))
+                .map(response -> jsonResponse(response, "文件上传解码"));
+        });
+    }
+
+    /**
+     * 解码消息 - 文件上传，二进制响应
+     */
+    @PostMapping(value = "/decode/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<?>> decodePayloadFromFile(ServerWebExchange exchange) {
+        return exchange.getMultipartData().flatMap(parts -> {
+            FilePart file = filePart(parts, "file");
+            if (file == null) {
+                return Mono.just(jsonError(OutguessResponse.error("INVALID_REQUEST", "缺少上传文件")));
+            }
+            logger.info("收到文件上传二进制解码请求，文件名: {}", file.filename());
+            if (!isJpegFile(file)) {
+                return Mono.just(jsonError(OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件")));
+            }
+
+            String password = formValue(parts, "password");
+            boolean verbose = Boolean.parseBoolean(formValue(parts, "verbose"));
+            return readBytes(file.content())
+                .flatMap(bytes -> decode(() -> outguessService.decodePayload(bytes, password, verbose)))
+                .map(this::payloadResponse)
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(jsonError(fileTooLarge())));
+        });
+    }
+
+    /**
+     * 解码消息 - 原始二进制格式
+     * 请求体即JPEG文件本身，按 max-file-size 限制聚合，密码通过请求头传递
+     */
+    @PostMapping(value = "/decode/raw",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.IMAGE_JPEG_VALUE},
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> decodeMessageFromBytes(
+            @RequestBody Flux<DataBuffer> body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+
+        logger.info("收到原始二进制解码请求");
+
+        return readBytes(body)
+            .flatMap(bytes -> decode(() -> outguessService.decode(bytes, password, verbose)))
+            .onErrorResume(DataBufferLimitException.class, e -> Mono.just(fileTooLarge()))
+            .map(response -> jsonResponse(response, "原始二进制解码"));
+    }
+
+    /**
+     * 解码消息 - 原始二进制请求和响应
+     */
+    @PostMapping(value = "/decode/raw",
+                 consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.IMAGE_JPEG_VALUE},
+                 produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<?>> decodePayloadFromBytes(
+            @RequestBody Flux<DataBuffer> body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+
+        logger.info("收到原始二进制解码请求（二进制响应）");
+
+        return readBytes(body)
+            .flatMap(bytes -> decode(() -> outguessService.decodePayload(bytes, password, verbose)))
+            .map(this::payloadResponse)
+            .onErrorResume(DataBufferLimitException.class, e -> Mono.just(jsonError(fileTooLarge())));
+    }
+
+    /**
+     * 嵌入消息 - JSON格式
+     */
+    @PostMapping(value = "/embed",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<?>> embedMessage(@Valid @RequestBody OutguessEmbedRequest request) {
+        logger.info("收到嵌入请求，文件名: {}", request.getFilename());
+
+        return decode(() -> outguessService.embedMessage(
+                request.getImageData(), request.getMessage(), request.getPassword()))
+            .map(this::embedResponse);
+    }
+
+    /**
+     * 嵌入消息 - 文件上传格式
+     */
+    @PostMapping(value = "/embed/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<?>> embedMessageToFile(ServerWebExchange exchange) {
+        return exchange.getMultipartData().flatMap(parts -> {
+            FilePart file = filePart(parts, "file");
+            String message = formValue(parts, "message");
+            if (file == null || message == null) {
+                return Mono.just(jsonError(OutguessResponse.error("INVALID_REQUEST", "缺少上传文件或消息")));
+            }
+            logger.info("收到文件上传嵌入请求，文件名: {}", file.filename());
+            if (!isJpegFile(file)) {
+                return Mono.just(jsonError(OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件")));
+            }
+
+            String password = formValue(parts, "password");
+            return readBytes(file.content())
+                .flatMap(bytes -> decode(() -> outguessService.embedMessage(bytes, message, password)))
+                .map(this::embedResponse)
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(jsonError(fileTooLarge())));
+        });
+    }
+
+    /**
+     * 批量解码 - 多文件上传
+     * 各文件并行解码，结果按完成顺序以NDJSON输出，单个图像失败不影响其余图像
+     */
+    @PostMapping(value = "/decode/batch",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchDecodeResult> decodeBatchFromFiles(ServerWebExchange exchange) {
+        return exchange.getMultipartData().flatMapMany(parts -> {
+            List<Part> files = parts.getOrDefault("files", List.of());
+            String password = formValue(parts, "password");
+            boolean verbose = Boolean.parseBoolean(formValue(parts, "verbose"));
+            logger.info("收到批量解码请求，文件数: {}", files.size());
+
+            int maxItems = config.getBatchMaxItems();
+            AtomicInteger index = new AtomicInteger();
+            Flux<BatchDecodeResult> results = Flux.fromIterable(files)
+                .take(maxItems)
+                .filter(FilePart.class::isInstance)
+                .cast(FilePart.class)
+                .flatMap(file -> {
+                    int i = index.getAndIncrement();
+                    return readBytes(file.content())
+                        .flatMap(bytes -> decode(() -> outguessService.decode(bytes, password, verbose)))
+                        .onErrorResume(DataBufferLimitException.class, e -> Mono.just(fileTooLarge()))
+                        .map(response -> new BatchDecodeResult(i, file.filename(), response));
+                }, decodeParallelism());
+            if (files.size() > maxItems) {
+                String filename = files.get(maxItems) instanceof FilePart file ? file.filename() : null;
+                results = results.concatWith(Mono.fromSupplier(() -> new BatchDecodeResult(maxItems, filename,
+                    OutguessResponse.error("BATCH_TOO_LARGE", "批量图像数量超过限制: " + maxItems))));
+            }
+            return results;
+        })
+        .doOnNext(result -> countResponse(result.getResponse()))
+        .doOnComplete(() -> logger.info("批量解码完成"));
+    }
+
+    /**
+     * 批量解码 - ZIP压缩包
+     * ZIP只能顺序读取，读取线程在弹性线程池上阻塞等待上游数据，解码仍由OutguessService的批量线程池完成
+     */
+    @PostMapping(value = "/decode/batch",
+                 consumes = "application/zip",
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchDecodeResult> decodeBatchFromArchive(
+            @RequestBody Flux<DataBuffer> body,
+            @RequestHeader(value = "X-Outguess-Password", required = false) String password,
+            @RequestParam(value = "verbose", defaultValue = "false") boolean verbose) {
+
+        logger.info("收到批量解码请求（ZIP压缩包）");
+
+        return Flux.<BatchDecodeResult>create(sink -> {
+                try (InputStream archive = DataBufferUtils.subscriberInputStream(body, ARCHIVE_DEMAND)) {
+                    int count = outguessService.decodeBatchArchive(archive, password, verbose, sink::next);
+                    logger.info("批量解码完成，共 {} 个图像", count);
+                    sink.complete();
+                } catch (Exception e) {
+                    sink.error(e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnNext(result -> countResponse(result.getResponse()));
+    }
+
+    /**
+     * 检查隐藏数据
+     */
+    @PostMapping(value = "/check",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> checkHiddenData(@Valid @RequestBody OutguessRequest request) {
+        logger.info("收到隐藏数据检查请求");
+
+        return decode(() -> outguessService.checkHiddenData(request))
+            .map(response -> jsonResponse(response, "隐藏数据检查"));
+    }
+
+    /**
+     * 估算图像容量 - JSON格式
+     */
+    @PostMapping(value = "/capacity",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> estimateCapacity(
+            @Valid @RequestBody OutguessCapacityRequest request) {
+        logger.info("收到容量估算请求，文件名: {}", request.getFilename());
+
+        return decode(() -> outguessService.estimateCapacity(
+                request.getImageData(), request.getCompressionResistance(), request.getQuality()))
+            .map(response -> jsonResponse(response, "容量估算"));
+    }
+
+    /**
+     * 估算图像容量 - 文件上传格式
+     */
+    @PostMapping(value = "/capacity/upload",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OutguessResponse>> estimateCapacityForFile(ServerWebExchange exchange) {
+        return exchange.getMultipartData().flatMap(parts -> {
+            FilePart file = filePart(parts, "file");
+            if (file == null) {
+                return Mono.just(jsonResponse(OutguessResponse.error("INVALID_REQUEST", "缺少上传文件"), "容量估算"));
+            }
+            logger.info("收到文件上传容量估算请求，文件名: {}", file.filename());
+            if (!isJpegFile(file)) {
+                return Mono.just(jsonResponse(
+                    OutguessResponse.error("INVALID_FILE_TYPE", "只支持JPEG图像文件"), "容量估算"));
+            }
+
+            int compressionResistance;
+            int quality;
+            try {
+                compressionResistance = intValue(parts, "compressionResistance", 5);
+                quality = intValue(parts, "quality", 85);
+            } catch (NumberFormatException e) {
+                return Mono.just(jsonResponse(OutguessResponse.error("INVALID_REQUEST", "参数格式错误"), "容量估算"));
+            }
+            return readBytes(file.content())
+                .flatMap(bytes -> decode(() -> outguessService.estimateCapacity(bytes, compressionResistance, quality)))
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(fileTooLarge()))
+                .map(response -> jsonResponse(response, "容量估算"));
+        });
+    }
+
+    /**
+     * 健康检查
+     */
+    @GetMapping("/health")
+    public Mono<OutguessResponse> healthCheck() {
+        OutguessResponse response = new OutguessResponse(true);
+        response.setMessage("Outguess服务运行正常");
+        response.setMetadata(new OutguessResponse.ResponseMetadata());
+        return Mono.just(response);
+    }
+
+    /**
+     * 获取服务信息
+     */
+    @GetMapping("/info")
+    public Mono<OutguessResponse> getServiceInfo() {
+        OutguessResponse response = new OutguessResponse(true);
+        response.setMessage("Outguess Java服务端解码器");
+
+        OutguessResponse.ResponseMetadata metadata = new OutguessResponse.ResponseMetadata();
+        metadata.setServerInfo("Outguess Java Server v1.0.0 (reactive)");
+        response.setMetadata(metadata);
+
+        return Mono.just(response);
+    }
+
+    /**
+     * 在有界的解码调度器上执行CPU密集操作，不占用Netty事件循环
+     */
+    private <T> Mono<T> decode(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(decodeScheduler);
+    }
+
+    /**
+     * 聚合请求体，超过 max-file-size 时以DataBufferLimitException中止读取，已读取的缓冲立即释放；
+     * 空请求体得到空数组，由OutguessService返回参数错误
+     */
+    private Mono<byte[]> readBytes(Flux<DataBuffer> content) {
+        return DataBufferUtils.join(content, config.getMaxFileSize())
+            .map(buffer -> {
+                try {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    return bytes;
+                } finally {
+                    DataBufferUtils.release(buffer);
+                }
+            })
+            .defaultIfEmpty(new byte[0]);
+    }
+
+    private int decodeParallelism() {
+        return config.getDecodeConcurrency() > 0
+            ? config.getDecodeConcurrency() : Runtime.getRuntime().availableProcessors();
+    }
+
+    private OutguessResponse fileTooLarge() {
+        return OutguessResponse.error("FILE_TOO_LARGE", "文件大小超过限制: " + config.getMaxFileSize() + " bytes");
+    }
+
+    private ResponseEntity<OutguessResponse> jsonResponse(OutguessResponse response, String operation) {
+        countResponse(response);
+        if (response.isSuccess()) {
+            logger.info("{}成功，消息长度: {} bytes", operation, response.getMessageSize());
+            return ResponseEntity.ok(response);
+        } else {
+            logger.warn("{}失败: {}", operation, response.getErrorMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 二进制解码成功时直接写出消息字节，元数据放在响应头中
+     */
+    private ResponseEntity<?> payloadResponse(OutguessService.PayloadResult result) {
+        OutguessResponse response = result.response();
+        if (!response.isSuccess()) {
+            logger.warn("二进制解码失败: {}", response.getErrorMessage());
+            return jsonError(response);
+        }
+
+        countResponse(response);
+        logger.info("二进制解码成功，消息长度: {} bytes", response.getMessageSize());
+        OutguessResponse.ResponseMetadata metadata = response.getMetadata();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header("X-Outguess-Message-Size", Integer.toString(response.getMessageSize()))
+            .header("X-Outguess-Verified", Boolean.toString(Boolean.TRUE.equals(response.getVerified())))
+            .header("X-Outguess-Processing-Time", Long.toString(response.getProcessingTime()))
+            .header("X-Outguess-Cached", Boolean.toString(metadata != null && Boolean.TRUE.equals(metadata.getCached())))
+            .body(result.payload());
+    }
+
+    /**
+     * 嵌入成功时返回JPEG，嵌入统计放在响应头中
+     */
+    private ResponseEntity<?> embedResponse(OutguessEmbedder.EmbedResult result) {
+        if (!result.isSuccess()) {
+            logger.warn("嵌入失败: {}", result.getErrorMessage());
+            return jsonError(OutguessResponse.error(result.getErrorCode(), result.getErrorMessage()));
+        }
+
+        logger.info("嵌入成功，嵌入 {} bytes", result.getEmbeddedBytes());
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_JPEG)
+            .header("X-Outguess-Embedded-Bytes", Integer.toString(result.getEmbeddedBytes()))
+            .header("X-Outguess-Changed-Coefficients", Integer.toString(result.getChangedCoefficients()))
+            .header("X-Outguess-Processing-Time", Long.toString(result.getProcessingTime()))
+            .body(result.getImageData());
+    }
+
+    /**
+     * 错误响应显式使用JSON，不受请求的Accept影响
+     */
+    private ResponseEntity<?> jsonError(OutguessResponse response) {
+        countResponse(response);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(response);
+    }
+
+    private void countResponse(OutguessResponse response) {
+        if (metrics != null) {
+            metrics.countResponse(response);
+        }
+    }
+
+    private static FilePart filePart(MultiValueMap<String, Part> parts, String name) {
+        return parts.getFirst(name) instanceof FilePart file ? file : null;
+    }
+
+    private static String formValue(MultiValueMap<String, Part> parts, String name) {
+        return parts.getFirst(name) instanceof FormFieldPart field ? field.value() : null;
+    }
+
+    private static int intValue(MultiValueMap<String, Part> parts, String name, int defaultValue) {
+        String value = formValue(parts, name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    /**
+     * 验证是否为JPEG文件
+     */
+    private static boolean isJpegFile(FilePart file) {
+        MediaType contentType = file.headers().getContentType();
+        String filename = file.filename();
+
+        return (contentType != null && contentType.toString().startsWith("image/jpeg")) ||
+               (filename != null && (filename.toLowerCase().endsWith(".jpg") ||
+                                   filename.toLowerCase().endsWith(".jpeg")));
+    }
+}
@@ -0,0 +1,18 @@
+package com.outguess.server.reactive;
+
+import com.outguess.server.OutguessServerApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+
+/**
+ * WebFlux/Netty模式启动入口（mvn -Preactive）
+ * servlet依赖仍在classpath上，需要显式指定REACTIVE，否则会按servlet应用启动
+ */
+public class ReactiveOutguessServerApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(OutguessServerApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.run(args);
+    }
+}
@@ -0,0 +1,167 @@
+package com.outguess.server.reactive;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.model.BatchDecodeResult;
+import com.outguess.server.model.OutguessRequest;
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.OutguessService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveOutguessController.class)
+@Import({ReactiveOutguessConfig.class, OutguessConfig.class})
+public class ReactiveOutguessControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private OutguessConfig config;
+
+    @MockBean
+    private OutguessService outguessService;
+
+    @Test
+    public void testHealthCheck() {
+        webTestClient.get().uri("/api/outguess/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.message").isEqualTo("Outguess服务运行正常");
+    }
+
+    @Test
+    public void testDecodeMessage() {
+        OutguessResponse mockResponse = OutguessResponse.success("测试消息", 8, 100L, true);
+        when(outguessService.decodeMessage(any(OutguessRequest.class))).thenReturn(mockResponse);
+
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString(fakeJpeg("image"))
+            + "\",\"password\":\"testpass\"}";
+
+        webTestClient.post().uri("/api/outguess/decode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("测试消息")
+                .jsonPath("$.verified").isEqualTo(true);
+    }
+
+    @Test
+    public void testDecodeMessageRejectsNonJpegData() {
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString("test image data".getBytes()) + "\"}";
+
+        webTestClient.post().uri("/api/outguess/decode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("INVALID_IMAGE_DATA");
+    }
+
+    @Test
+    public void testDecodeRawBytes() {
+        byte[] image = fakeJpeg("image");
+        OutguessResponse mockResponse = OutguessResponse.success("测试消息", 8, 100L, true);
+        when(outguessService.decode(eq(image), eq("testpass"), anyBoolean())).thenReturn(mockResponse);
+
+        webTestClient.post().uri("/api/outguess/decode/raw")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.ALL)
+                .header("X-Outguess-Password", "testpass")
+                .bodyValue(image)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("测试消息");
+    }
+
+    @Test
+    public void testDecodeRawStopsReadingOversizedBody() {
+        webTestClient.post().uri("/api/outguess/decode/raw")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue(new byte[config.getMaxFileSize() + 1])
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("FILE_TOO_LARGE");
+
+        verify(outguessService, never()).decode(any(byte[].class), any(), anyBoolean());
+    }
+
+    @Test
+    public void testDecodeUploadReturnsBinaryPayloadWhenRequested() {
+        byte[] payload = {(byte) 0xFF, 0x00, (byte) 0xC3, 0x28};
+        OutguessResponse meta = OutguessResponse.success(null, payload.length, 7L, true);
+        when(outguessService.decodePayload(any(byte[].class), eq("testpass"), anyBoolean()))
+            .thenReturn(new OutguessService.PayloadResult(meta, payload));
+
+        MultipartBodyBuilder parts = new MultipartBodyBuilder();
+        parts.part("file", new ByteArrayResource(fakeJpeg("image")))
+            .filename("image.jpg")
+            .contentType(MediaType.IMAGE_JPEG);
+        parts.part("password", "testpass");
+
+        webTestClient.post().uri("/api/outguess/decode/upload")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .body(BodyInserters.fromMultipartData(parts.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectHeader().valueEquals("X-Outguess-Message-Size", "4")
+                .expectBody(byte[].class).isEqualTo(payload);
+    }
+
+    @Test
+    public void testDecodeBatchStreamsNdjson() {
+        when(outguessService.decode(any(byte[].class), eq("testpass"), anyBoolean()))
+            .thenReturn(OutguessResponse.error("DECODE_FAILED", "无效的JPEG文件"));
+
+        MultipartBodyBuilder parts = new MultipartBodyBuilder();
+        parts.part("files", new ByteArrayResource(fakeJpeg("a"))).filename("a.jpg");
+        parts.part("files", new ByteArrayResource(fakeJpeg("b"))).filename("b.jpg");
+        parts.part("password", "testpass");
+
+        webTestClient.post().uri("/api/outguess/decode/batch")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(parts.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BatchDecodeResult.class).hasSize(2);
+    }
+
+    /**
+     * 以JPEG SOI标记开头的测试数据
+     */
+    private static byte[] fakeJpeg(String content) {
+        byte[] data = content.getBytes();
+        byte[] jpeg = new byte[data.length + 2];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        System.arraycopy(data, 0, jpeg, 2, data.length);
+        return jpeg;
+    }
+}
@@ -0,0 +1,90 @@
+package com.outguess.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outguess.server.model.BatchDecodeResult;
+import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.OutguessService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 批量解码流式响应的异步超时
+ *
+ * 把Tomcat连接器的默认异步超时压到1秒，批量解码持续输出超过该时间，
+ * 响应仍须完整，说明生效的是 spring.mvc.async.request-timeout 而不是容器默认值
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "logging.file.name=target/batch-timeout-test/outguess-server.log"
+})
+public class BatchStreamingTimeoutTest {
+
+    private static final long CONTAINER_ASYNC_TIMEOUT_MS = 1000;
+    private static final int ITEMS = 5;
+    private static final long ITEM_DELAY_MS = 400;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private OutguessService outguessService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TestConfiguration
+    static class ShortContainerTimeout {
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> shortAsyncTimeout() {
+            return factory -> factory.addConnectorCustomizers(
+                connector -> connector.setAsyncTimeout(CONTAINER_ASYNC_TIMEOUT_MS));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchStreamsLongerThanContainerDefault() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BatchDecodeResult> sink = invocation.getArgument(3);
+            for (int i = 0; i < ITEMS; i++) {
+                Thread.sleep(ITEM_DELAY_MS);
+                sink.accept(new BatchDecodeResult(i, i + ".jpg", OutguessResponse.success("消息" + i, 6, ITEM_DELAY_MS, true)));
+            }
+            return ITEMS;
+        }).when(outguessService).decodeBatchArchive(any(), isNull(), anyBoolean(), any());
+
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/outguess/decode/batch"))
+                .header("Content-Type", "application/zip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(new byte[] {'P', 'K', 5, 6}))
+                .build(),
+            HttpResponse.BodyHandlers.ofLines());
+
+        assertEquals(200, response.statusCode());
+        List<String> lines = response.body().toList();
+        assertEquals(ITEMS, lines.size());
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals("消息" + i, objectMapper.readTree(lines.get(i)).get("message").asText());
+        }
+    }
+}
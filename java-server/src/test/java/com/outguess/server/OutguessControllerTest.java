@@ -2,21 +2,35 @@ package com.outguess.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.outguess.server.controller.OutguessController;
+import com.outguess.server.model.BatchDecodeResult;
 import com.outguess.server.model.OutguessRequest;
 import com.outguess.server.model.OutguessResponse;
+import com.outguess.server.service.OutguessEmbedder;
 import com.outguess.server.service.OutguessService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -43,7 +57,7 @@ public class OutguessControllerTest {
     @Test
     public void testDecodeMessage() throws Exception {
         // 准备测试数据
-        String testImageData = Base64.getEncoder().encodeToString("test image data".getBytes());
+        String testImageData = Base64.getEncoder().encodeToString(fakeJpeg("test image data"));
         OutguessRequest request = new OutguessRequest();
         request.setImageData(testImageData);
         request.setPassword("testpass");
@@ -74,7 +88,7 @@ public class OutguessControllerTest {
     
     @Test
     public void testCheckHiddenData() throws Exception {
-        String testImageData = Base64.getEncoder().encodeToString("test image data".getBytes());
+        String testImageData = Base64.getEncoder().encodeToString(fakeJpeg("test image data"));
         OutguessRequest request = new OutguessRequest();
         request.setImageData(testImageData);
         
@@ -92,4 +106,193 @@ public class OutguessControllerTest {
                 .andExpect(jsonPath("$.message").value("检测到隐藏数据"))
                 .andExpect(jsonPath("$.verified").value(true));
     }
+    
+    @Test
+    public void testDecodeRawBytes() throws Exception {
+        OutguessResponse mockResponse = OutguessResponse.success("测试消息", 8, 100L, true);
+        when(outguessService.decode(any(InputStream.class), eq("testpass"), anyBoolean())).thenReturn(mockResponse);
+        
+        // curl等客户端默认发送 Accept: */*，此时仍返回JSON
+        mockMvc.perform(post("/api/outguess/decode/raw")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.ALL)
+                .header("X-Outguess-Password", "testpass")
+                .content("test image data".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("测试消息"));
+    }
+    
+    @Test
+    public void testDecodeUploadPassesBytesDirectly() throws Exception {
+        byte[] fileBytes = "test image data".getBytes();
+        OutguessResponse mockResponse = OutguessResponse.success("测试消息", 8, 100L, true);
+        when(outguessService.decode(eq(fileBytes), any(), anyBoolean())).thenReturn(mockResponse);
+        
+        mockMvc.perform(multipart("/api/outguess/decode/upload")
+                .file(new MockMultipartFile("file", "image.jpg", "image/jpeg", fileBytes)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("测试消息"));
+    }
+    
+    @Test
+    public void testDecodeMessageRejectsNonJpegData() throws Exception {
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString("test image data".getBytes()) + "\"}";
+        
+        mockMvc.perform(post("/api/outguess/decode")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_IMAGE_DATA"));
+    }
+    
+    @Test
+    public void testDecodeMessageRejectsOversizedImage() throws Exception {
+        byte[] oversized = fakeJpeg(new String(new char[10 * 1024 * 1024]));
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString(oversized) + "\"}";
+        
+        mockMvc.perform(post("/api/outguess/check")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.errorCode").value("FILE_TOO_LARGE"));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecodeBatchStreamsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Iterator<OutguessService.BatchItem> items = invocation.getArgument(0);
+            Consumer<BatchDecodeResult> sink = invocation.getArgument(3);
+            int index = 0;
+            while (items.hasNext()) {
+                OutguessService.BatchItem item = items.next();
+                OutguessResponse response = index == 0
+                    ? OutguessResponse.success("消息" + index, 3, 10L, true)
+                    : OutguessResponse.error("DECODE_FAILED", "无效的JPEG文件");
+                sink.accept(new BatchDecodeResult(index++, item.filename(), response));
+            }
+            return index;
+        }).when(outguessService).decodeBatch(any(), eq("testpass"), anyBoolean(), any());
+        
+        MvcResult started = mockMvc.perform(multipart("/api/outguess/decode/batch")
+                .file(new MockMultipartFile("files", "a.jpg", "image/jpeg", fakeJpeg("a")))
+                .file(new MockMultipartFile("files", "b.jpg", "image/jpeg", fakeJpeg("b")))
+                .param("password", "testpass"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("a.jpg", objectMapper.readTree(lines[0]).get("filename").asText());
+        assertEquals("消息0", objectMapper.readTree(lines[0]).get("message").asText());
+        assertEquals(1, objectMapper.readTree(lines[1]).get("index").asInt());
+        assertEquals("DECODE_FAILED", objectMapper.readTree(lines[1]).get("errorCode").asText());
+    }
+    
+    @Test
+    public void testEmbedReturnsJpeg() throws Exception {
+        byte[] stego = fakeJpeg("stego image");
+        when(outguessService.embedMessage(any(), eq("消息"), eq("testpass")))
+            .thenReturn(new OutguessEmbedder.EmbedResult(true, stego, 14, 9, null, null, 5L));
+        
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString(fakeJpeg("cover"))
+            + "\",\"message\":\"消息\",\"password\":\"testpass\"}";
+        
+        mockMvc.perform(post("/api/outguess/embed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(header().string("X-Outguess-Embedded-Bytes", "14"))
+                .andExpect(content().bytes(stego));
+    }
+    
+    @Test
+    public void testEmbedUploadReportsCapacityError() throws Exception {
+        when(outguessService.embedMessage(any(), eq("消息"), any()))
+            .thenReturn(OutguessEmbedder.EmbedResult.error("CAPACITY_EXCEEDED", "图像容量不足", System.currentTimeMillis()));
+        
+        mockMvc.perform(multipart("/api/outguess/embed/upload")
+                .file(new MockMultipartFile("file", "image.jpg", "image/jpeg", fakeJpeg("cover")))
+                .param("message", "消息"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("CAPACITY_EXCEEDED"));
+    }
+    
+    @Test
+    public void testEstimateCapacity() throws Exception {
+        OutguessResponse.Capacity capacity = new OutguessResponse.Capacity();
+        capacity.setUsableCoefficients(4096);
+        capacity.setMaxMessageSize(288);
+        OutguessResponse mockResponse = new OutguessResponse(true);
+        mockResponse.setMessageSize(288);
+        mockResponse.setCapacity(capacity);
+        when(outguessService.estimateCapacity(any(), eq(3), eq(85))).thenReturn(mockResponse);
+        
+        String body = "{\"imageData\":\"" + Base64.getEncoder().encodeToString(fakeJpeg("cover"))
+            + "\",\"compressionResistance\":3}";
+        
+        mockMvc.perform(post("/api/outguess/capacity")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.capacity.usableCoefficients").value(4096))
+                .andExpect(jsonPath("$.capacity.maxMessageSize").value(288));
+        
+        mockMvc.perform(post("/api/outguess/capacity")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.replace("\"compressionResistance\":3", "\"compressionResistance\":11")))
+                .andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    public void testDecodeRawReturnsBinaryPayloadWhenRequested() throws Exception {
+        byte[] payload = {(byte) 0xFF, 0x00, (byte) 0xC3, 0x28};
+        OutguessResponse meta = OutguessResponse.success(null, payload.length, 7L, true);
+        when(outguessService.decodePayload(any(InputStream.class), eq("testpass"), anyBoolean()))
+            .thenReturn(new OutguessService.PayloadResult(meta, payload));
+        
+        mockMvc.perform(post("/api/outguess/decode/raw")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .header("X-Outguess-Password", "testpass")
+                .content(fakeJpeg("image")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string("X-Outguess-Message-Size", "4"))
+                .andExpect(header().string("X-Outguess-Verified", "true"))
+                .andExpect(content().bytes(payload));
+    }
+    
+    @Test
+    public void testDecodeBinaryModeReportsErrorsAsJson() throws Exception {
+        when(outguessService.decodePayload(any(byte[].class), any(), anyBoolean()))
+            .thenReturn(new OutguessService.PayloadResult(OutguessResponse.error("DECODE_FAILED", "无效的JPEG文件"), null));
+        
+        mockMvc.perform(multipart("/api/outguess/decode/upload")
+                .file(new MockMultipartFile("file", "image.jpg", "image/jpeg", fakeJpeg("image")))
+                .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.errorCode").value("DECODE_FAILED"));
+    }
+    
+    /**
+     * 以JPEG SOI标记开头的测试数据
+     */
+    private static byte[] fakeJpeg(String content) {
+        byte[] data = content.getBytes();
+        byte[] jpeg = new byte[data.length + 2];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        System.arraycopy(data, 0, jpeg, 2, data.length);
+        return jpeg;
+    }
 }
\ No newline at end of file
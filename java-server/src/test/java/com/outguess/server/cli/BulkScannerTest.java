@@ -0,0 +1,156 @@
+package com.outguess.server.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.TestJpegs;
+import com.outguess.server.service.OutguessDecoder;
+import com.outguess.server.service.OutguessEmbedder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkScannerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testScanWritesResultsInWalkOrder() throws Exception {
+        Path root = createImages();
+        Path output = tempDir.resolve("results.jsonl");
+
+        BulkScanner.Summary summary = new BulkScanner(BulkScanner.parse(new String[] {
+            root.toString(), "--output", output.toString(), "--password", "pass", "--threads", "2"})).run();
+
+        assertEquals(4, summary.scanned());
+        assertEquals(1, summary.decoded());
+        assertEquals(1, summary.errors());
+
+        List<JsonNode> lines = readLines(output);
+        assertEquals(List.of("a.jpg", "empty.jpg", "sub/c.jpg", "z.JPEG"), paths(lines));
+        assertTrue(lines.get(0).get("decoded").asBoolean());
+        assertEquals("批量扫描的消息", lines.get(0).get("message").asText());
+        assertEquals("批量扫描的消息", new String(
+            Base64.getDecoder().decode(lines.get(0).get("payloadBase64").asText()), StandardCharsets.UTF_8));
+        assertTrue(lines.get(0).has("hasHiddenData"));
+        assertEquals("INVALID_IMAGE_DATA", lines.get(1).get("errorCode").asText());
+        assertEquals("DECODE_FAILED", lines.get(2).get("errorCode").asText());
+        assertFalse(lines.get(3).get("decoded").asBoolean());
+    }
+
+    @Test
+    public void testCheckOnlyModeSkipsExtraction() throws Exception {
+        Path root = createImages();
+        Path output = tempDir.resolve("check.jsonl");
+
+        new BulkScanner(BulkScanner.parse(new String[] {
+            root.toString(), "--output", output.toString(), "--mode", "check"})).run();
+
+        for (JsonNode line : readLines(output)) {
+            assertFalse(line.has("decoded"));
+            assertFalse(line.has("message"));
+        }
+    }
+
+    @Test
+    public void testResumeDropsPartialLineAndSkipsCheckpointedFiles() throws Exception {
+        Path root = createImages();
+        Path output = tempDir.resolve("resume.jsonl");
+        String[] args = {root.toString(), "--output", output.toString(), "--password", "pass",
+            "--checkpoint-interval", "1"};
+        new BulkScanner(BulkScanner.parse(args)).run();
+        List<String> expected = paths(readLines(output));
+
+        // 模拟写完两个结果后中断：检查点停在第二行末尾，输出中还有半行
+        List<String> written = Files.readAllLines(output, StandardCharsets.UTF_8);
+        long twoLines = (written.get(0) + "\n" + written.get(1) + "\n").getBytes(StandardCharsets.UTF_8).length;
+        Files.writeString(Path.of(output + ".checkpoint"), objectMapper.writeValueAsString(
+            new BulkScanner.Checkpoint(root.toAbsolutePath().normalize().toString(), 2, twoLines)));
+        byte[] head = Files.readAllBytes(output);
+        Files.write(output, Arrays.copyOf(head, (int) twoLines));
+        Files.writeString(output, "{\"path\":\"sub/c.j", StandardOpenOption.APPEND);
+
+        List<String> resumeArgs = new ArrayList<>(List.of(args));
+        resumeArgs.add("--resume");
+        BulkScanner.Summary summary = new BulkScanner(BulkScanner.parse(resumeArgs.toArray(new String[0]))).run();
+
+        assertEquals(2, summary.resumed());
+        assertEquals(2, summary.scanned());
+        assertEquals(expected, paths(readLines(output)));
+    }
+
+    @Test
+    public void testBinaryPayloadIsWrittenAsBase64() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("binary"));
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(128, 96, BufferedImage.TYPE_INT_RGB, 11), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        OutguessEmbedder embedder = new OutguessEmbedder(new OutguessDecoder(config), config);
+        // 不是合法的UTF-8，message中会出现替换字符
+        byte[] binary = {(byte) 0xFF, (byte) 0xFE, 0x00, (byte) 0xC3, 0x28, (byte) 0x80, 0x7F};
+        Files.write(root.resolve("bin.jpg"), embedder.embedPayload(cover, binary, null).getImageData());
+        Path output = tempDir.resolve("binary.jsonl");
+
+        new BulkScanner(BulkScanner.parse(new String[] {root.toString(), "--output", output.toString()})).run();
+
+        JsonNode line = readLines(output).get(0);
+        assertTrue(line.get("decoded").asBoolean());
+        assertArrayEquals(binary, Base64.getDecoder().decode(line.get("payloadBase64").asText()));
+    }
+
+    @Test
+    public void testParseRejectsUnknownMode() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BulkScanner.parse(new String[] {tempDir.toString(), "--mode", "embed"}));
+        assertThrows(IllegalArgumentException.class, () -> BulkScanner.parse(new String[0]));
+        assertThrows(IllegalArgumentException.class,
+            () -> BulkScanner.parse(new String[] {tempDir.toString(), "--threads"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> BulkScanner.parse(new String[] {tempDir.toString(), "--threads", "0"}));
+    }
+
+    /**
+     * a.jpg含加密消息，z.JPEG为普通图像，sub/c.jpg不是JPEG，empty.jpg为空文件，notes.txt不参与扫描
+     */
+    private Path createImages() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("images"));
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(128, 96, BufferedImage.TYPE_INT_RGB, 7), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        OutguessEmbedder embedder = new OutguessEmbedder(new OutguessDecoder(config), config);
+        OutguessEmbedder.EmbedResult stego = embedder.embedMessage(cover, "批量扫描的消息", "pass");
+        assertTrue(stego.isSuccess(), stego.getErrorMessage());
+
+        Files.write(root.resolve("a.jpg"), stego.getImageData());
+        Files.write(root.resolve("z.JPEG"), cover);
+        Files.write(root.resolve("empty.jpg"), new byte[0]);
+        Files.writeString(root.resolve("notes.txt"), "not an image");
+        Path sub = Files.createDirectories(root.resolve("sub"));
+        Files.writeString(sub.resolve("c.jpg"), "not a jpeg");
+        return root;
+    }
+
+    private List<JsonNode> readLines(Path output) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static List<String> paths(List<JsonNode> lines) {
+        return lines.stream().map(line -> line.get("path").asText()).toList();
+    }
+}
@@ -0,0 +1,225 @@
+package com.outguess.server.jpeg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JpegParserTest {
+
+    @Test
+    public void testGrayscaleCoefficientsReconstructImage() throws Exception {
+        BufferedImage source = TestJpegs.noiseImage(77, 45, BufferedImage.TYPE_BYTE_GRAY, 1);
+        byte[] jpeg = TestJpegs.encode(source, 0.9f);
+
+        JpegImage image = JpegParser.parse(jpeg);
+        assertEquals(77, image.getWidth());
+        assertEquals(45, image.getHeight());
+        assertEquals(1, image.getComponentCount());
+
+        // 反量化 + IDCT 后应与ImageIO解码出的像素一致（允许舍入误差）
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+        JpegImage.Component c = image.getComponent(0);
+        int[] quant = image.getQuantTable(0);
+        CoefficientStore coefficients = image.getCoefficients();
+        int maxError = 0;
+        for (int row = 0; row * 8 < image.getHeight(); row++) {
+            for (int col = 0; col * 8 < image.getWidth(); col++) {
+                int offset = c.blockOffset(row, col);
+                for (int y = 0; y < 8 && row * 8 + y < image.getHeight(); y++) {
+                    for (int x = 0; x < 8 && col * 8 + x < image.getWidth(); x++) {
+                        int pixel = idct(coefficients, offset, quant, x, y);
+                        int expected = decoded.getRaster().getSample(col * 8 + x, row * 8 + y, 0);
+                        maxError = Math.max(maxError, Math.abs(pixel - expected));
+                    }
+                }
+            }
+        }
+        assertTrue(maxError <= 2, "重建误差过大: " + maxError);
+    }
+
+    @Test
+    public void testColorImageLayout() throws Exception {
+        byte[] jpeg = TestJpegs.encode(
+            TestJpegs.noiseImage(100, 60, BufferedImage.TYPE_INT_RGB, 2), 0.75f);
+
+        JpegImage image = JpegParser.parse(jpeg);
+        assertEquals(3, image.getComponentCount());
+
+        int expected = 0;
+        for (int i = 0; i < image.getComponentCount(); i++) {
+            JpegImage.Component c = image.getComponent(i);
+            assertEquals(expected, c.getOffset());
+            expected += c.getBlocksPerLine() * c.getBlocksPerColumn() * JpegImage.BLOCK_SIZE;
+        }
+        assertEquals(expected, image.getCoefficients().size());
+
+        // Y分量 2x2 采样：100x60 -> 7x4 个MCU -> 14x8 个块
+        assertEquals(14, image.getComponent(0).getBlocksPerLine());
+        assertEquals(8, image.getComponent(0).getBlocksPerColumn());
+    }
+
+    @Test
+    public void testUniformImageHasOnlyDc() throws Exception {
+        BufferedImage source = new BufferedImage(32, 32, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                source.getRaster().setSample(x, y, 0, 200);
+            }
+        }
+        JpegImage image = JpegParser.parse(TestJpegs.encode(source, 1.0f));
+
+        CoefficientStore coefficients = image.getCoefficients();
+        int dcQuant = image.getQuantTable(0)[0];
+        for (int i = 0; i < coefficients.size(); i++) {
+            if (i % JpegImage.BLOCK_SIZE == 0) {
+                assertEquals(Math.round((200 - 128) * 8f / dcQuant), coefficients.get(i));
+            } else {
+                assertEquals(0, coefficients.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testMappedStoreMatchesHeap(@TempDir Path tempDir) throws Exception {
+        byte[] jpeg = TestJpegs.encode(
+            TestJpegs.noiseImage(120, 90, BufferedImage.TYPE_INT_RGB, 4), 0.85f);
+
+        CoefficientStore heap = JpegParser.parse(jpeg).getCoefficients();
+        try (JpegImage mapped = JpegParser.parse(ByteBuffer.wrap(jpeg),
+                size -> MappedCoefficientStore.create(tempDir, size))) {
+            assertTrue(mapped.getCoefficients() instanceof MappedCoefficientStore);
+            assertEquals(heap.size(), mapped.getCoefficients().size());
+            for (int i = 0; i < heap.size(); i++) {
+                assertEquals(heap.get(i), mapped.getCoefficients().get(i));
+            }
+        }
+
+        // 临时文件以DELETE_ON_CLOSE打开，不应残留
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testSpillBudgetLimitsLiveMappings(@TempDir Path tempDir) throws Exception {
+        int size = 64 * 1024;
+        SpillBudget budget = new SpillBudget((long) size * Short.BYTES);
+
+        MappedCoefficientStore first = MappedCoefficientStore.create(tempDir, size, budget);
+        assertEquals((long) size * Short.BYTES, budget.getReservedBytes());
+        assertThrows(IOException.class, () -> MappedCoefficientStore.create(tempDir, size, budget));
+        assertEquals((long) size * Short.BYTES, budget.getReservedBytes());
+
+        // 关闭并丢弃后，映射被回收时退还额度
+        first.close();
+        first = null;
+        try (MappedCoefficientStore second = MappedCoefficientStore.create(tempDir, size, budget)) {
+            second.set(size - 1, (short) 7);
+            assertEquals(7, second.get(size - 1));
+        }
+    }
+
+    @Test
+    public void testParallelRestartIntervalsMatchSequential() throws Exception {
+        BufferedImage source = TestJpegs.noiseImage(640, 480, BufferedImage.TYPE_INT_RGB, 5);
+        byte[] plain = TestJpegs.encode(source, 0.9f);
+        byte[] restarts = TestJpegs.encode(source, 0.9f, false, 7);
+
+        CoefficientStore expected = JpegParser.parse(plain).getCoefficients();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JpegImage image = JpegParser.parse(ByteBuffer.wrap(restarts), HeapCoefficientStore::new, executor);
+            assertEquals(7, image.getRestartInterval());
+
+            // 重启标记不改变系数，并行解码结果应与无DRI的顺序解码完全一致
+            CoefficientStore actual = image.getCoefficients();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), actual.get(i), "系数不一致: " + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSampleDecodesSpreadRestartIntervals() throws Exception {
+        // 256x256灰度图共32x32个块，每32个块（一行）一个重启区间
+        BufferedImage source = TestJpegs.noiseImage(256, 256, BufferedImage.TYPE_BYTE_GRAY, 6);
+        CoefficientStore full = JpegParser.parse(TestJpegs.encode(source, 0.9f)).getCoefficients();
+        byte[] restarts = TestJpegs.encode(source, 0.9f, false, 32);
+
+        // 100个块需要4个区间，均匀取第0、8、16、24行
+        CoefficientStore sample = JpegParser.sample(ByteBuffer.wrap(restarts), 100);
+        assertEquals(4 * 32 * 64, sample.size());
+        for (int k = 0; k < 4; k++) {
+            int fullOffset = k * 8 * 32 * 64;
+            for (int i = 0; i < 32 * 64; i++) {
+                assertEquals(full.get(fullOffset + i), sample.get(k * 32 * 64 + i), "系数不一致: " + k + "/" + i);
+            }
+        }
+
+        // 没有重启标记时解码扫描开头的块
+        CoefficientStore prefix = JpegParser.sample(ByteBuffer.wrap(TestJpegs.encode(source, 0.9f)), 100);
+        assertEquals(100 * 64, prefix.size());
+        for (int i = 0; i < prefix.size(); i++) {
+            assertEquals(full.get(i), prefix.get(i));
+        }
+
+        // 抽样数超过图像块数时等同于完整解码
+        assertEquals(full.size(), JpegParser.sample(ByteBuffer.wrap(restarts), 1_000_000).size());
+    }
+
+    @Test
+    public void testRejectsInvalidData() {
+        assertThrows(JpegFormatException.class, () -> JpegParser.parse("not a jpeg".getBytes()));
+        assertThrows(JpegFormatException.class, () -> JpegParser.parse(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xD9}));
+    }
+
+    @Test
+    public void testRejectsOversubscribedHuffmanTable() throws Exception {
+        // 长度1只有2个码字，第3个码字超出码空间，应在写查找表之前拒绝
+        byte[] counts = new byte[16];
+        counts[0] = 3;
+        assertThrows(JpegFormatException.class, () -> new HuffmanTable(counts, new byte[] {0, 1, 2}));
+
+        // 码空间恰好用满是合法的
+        counts[0] = 2;
+        HuffmanTable full = new HuffmanTable(counts, new byte[] {0, 1});
+        assertEquals((1 << 8) | 1, full.lookup[(1 << HuffmanTable.LOOKAHEAD_BITS) - 1]);
+    }
+
+    @Test
+    public void testRejectsProgressive() throws Exception {
+        byte[] jpeg = TestJpegs.encode(
+            TestJpegs.noiseImage(64, 64, BufferedImage.TYPE_INT_RGB, 3), 0.8f, true);
+        assertThrows(JpegFormatException.class, () -> JpegParser.parse(jpeg));
+    }
+
+    private static int idct(CoefficientStore coefficients, int offset, int[] quant, int x, int y) {
+        double sum = 0;
+        for (int v = 0; v < 8; v++) {
+            for (int u = 0; u < 8; u++) {
+                int k = v * 8 + u;
+                double cu = u == 0 ? Math.sqrt(0.5) : 1;
+                double cv = v == 0 ? Math.sqrt(0.5) : 1;
+                sum += cu * cv * coefficients.get(offset + k) * quant[k]
+                    * Math.cos((2 * x + 1) * u * Math.PI / 16)
+                    * Math.cos((2 * y + 1) * v * Math.PI / 16);
+            }
+        }
+        int pixel = (int) Math.round(sum / 4 + 128);
+        return Math.max(0, Math.min(255, pixel));
+    }
+}
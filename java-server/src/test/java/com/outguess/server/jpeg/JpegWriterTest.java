@@ -0,0 +1,63 @@
+package com.outguess.server.jpeg;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JpegWriterTest {
+
+    @Test
+    public void testUnmodifiedCoefficientsRoundTripExactly() throws Exception {
+        BufferedImage color = TestJpegs.noiseImage(173, 91, BufferedImage.TYPE_INT_RGB, 11);
+        BufferedImage gray = TestJpegs.noiseImage(77, 45, BufferedImage.TYPE_BYTE_GRAY, 12);
+        byte[][] inputs = {
+            TestJpegs.encode(color, 0.9f),
+            TestJpegs.encode(color, 0.5f, false, 5),
+            TestJpegs.encode(gray, 0.75f),
+            TestJpegs.encode(gray, 0.75f, false, 3)
+        };
+        for (byte[] original : inputs) {
+            try (JpegImage image = JpegParser.parse(original)) {
+                assertArrayEquals(original, JpegWriter.write(original, image));
+            }
+        }
+    }
+
+    @Test
+    public void testRewritesModifiedCoefficients() throws Exception {
+        BufferedImage source = TestJpegs.noiseImage(640, 480, BufferedImage.TYPE_INT_RGB, 13);
+        byte[] original = TestJpegs.encode(source, 0.85f, false, 9);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (JpegImage image = JpegParser.parse(ByteBuffer.wrap(original), HeapCoefficientStore::new, executor)) {
+            CoefficientStore coefficients = image.getCoefficients();
+            // 在幅度类别内翻转LSB：2<->3、-2<->-3、4<->5 ...
+            int changed = 0;
+            for (int i = 1; i < coefficients.size(); i += 7) {
+                int c = coefficients.get(i);
+                if (i % 64 != 0 && Math.abs(c) >= 2) {
+                    int m = Math.abs(c) ^ 1;
+                    coefficients.set(i, (short) (c < 0 ? -m : m));
+                    changed++;
+                }
+            }
+            assertTrue(changed > 100);
+
+            byte[] rewritten = JpegWriter.write(original, image);
+            try (JpegImage reparsed = JpegParser.parse(rewritten)) {
+                CoefficientStore actual = reparsed.getCoefficients();
+                assertEquals(coefficients.size(), actual.size());
+                for (int i = 0; i < actual.size(); i++) {
+                    assertEquals(coefficients.get(i), actual.get(i), "系数不一致: " + i);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.outguess.server.jpeg;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * 测试用JPEG生成工具（基于JDK自带的ImageIO编码器）
+ */
+public final class TestJpegs {
+
+    private TestJpegs() {}
+
+    /**
+     * 生成带有纹理噪声的图像，保证有足够多的非零AC系数
+     */
+    public static BufferedImage noiseImage(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = (x * 7 + y * 3) & 0xFF;
+                int r = clamp(base + random.nextInt(64) - 32);
+                int g = clamp((base ^ 0x55) + random.nextInt(64) - 32);
+                int b = clamp((255 - base) + random.nextInt(64) - 32);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    public static byte[] encode(BufferedImage image, float quality) throws IOException {
+        return encode(image, quality, false);
+    }
+
+    public static byte[] encode(BufferedImage image, float quality, boolean progressive) throws IOException {
+        return encode(image, quality, progressive, 0);
+    }
+
+    /**
+     * restartInterval大于0时写入DRI，每隔该数量的MCU插入一个RSTn标记
+     */
+    public static byte[] encode(BufferedImage image, float quality, boolean progressive,
+                                int restartInterval) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+
+        IIOMetadata metadata = null;
+        if (restartInterval > 0) {
+            metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+            String format = "javax_imageio_jpeg_image_1.0";
+            Node root = metadata.getAsTree(format);
+            Node markerSequence = ((Element) root).getElementsByTagName("markerSequence").item(0);
+            Element dri = new javax.imageio.metadata.IIOMetadataNode("dri");
+            dri.setAttribute("interval", Integer.toString(restartInterval));
+            markerSequence.insertBefore(dri, markerSequence.getFirstChild());
+            metadata.setFromTree(format, root);
+        }
+
+        return write(writer, image, metadata, param);
+    }
+
+    /**
+     * 使用按图像统计生成的最优Huffman表编码，表中只有实际出现过的符号
+     */
+    public static byte[] encodeOptimized(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        JPEGImageWriteParam param = (JPEGImageWriteParam) writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        param.setOptimizeHuffmanTables(true);
+        return write(writer, image, null, param);
+    }
+
+    private static byte[] write(ImageWriter writer, BufferedImage image, IIOMetadata metadata,
+                                ImageWriteParam param) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+}
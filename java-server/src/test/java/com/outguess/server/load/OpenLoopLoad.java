@@ -0,0 +1,119 @@
+package com.outguess.server.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * 开环负载发生器
+ *
+ * 按固定速率安排请求的计划发送时间，不等待上一个响应；延迟从计划发送时间开始计算，
+ * 服务端变慢时排队时间也计入延迟（避免协调遗漏）。预热期间的结果不计入统计。
+ */
+final class OpenLoopLoad {
+
+    /** 可记录的最大延迟：60秒（微秒） */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final HttpClient client;
+    private final double ratePerSecond;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int maxInFlight;
+
+    OpenLoopLoad(HttpClient client, double ratePerSecond, long warmupNanos, long durationNanos, int maxInFlight) {
+        this.client = client;
+        this.ratePerSecond = ratePerSecond;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 运行一轮负载，requests按序号生成第i个请求
+     */
+    Result run(IntFunction<HttpRequest> requests) throws InterruptedException {
+        Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+        Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+
+        for (int i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean measured = intended >= measureStart;
+            if (!inFlight.tryAcquire()) {
+                // 在途请求达到上限，说明远超服务端处理能力，直接记为丢弃
+                if (measured) {
+                    dropped.increment();
+                }
+                continue;
+            }
+            client.sendAsync(requests.apply(i), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.release();
+                    if (!measured) {
+                        return;
+                    }
+                    long latencyMicros = (System.nanoTime() - intended) / 1000;
+                    recorder.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+                    if (error != null) {
+                        failures.increment();
+                    } else {
+                        statusCounts.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+                    }
+                });
+        }
+
+        // 等待所有在途请求结束
+        inFlight.acquire(maxInFlight);
+        long elapsedNanos = Math.max(System.nanoTime() - measureStart, 1);
+
+        Map<Integer, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((code, count) -> statuses.put(code, count.sum()));
+        return new Result(recorder.getIntervalHistogram(), statuses, failures.sum(), dropped.sum(), elapsedNanos);
+    }
+
+    /**
+     * 一轮负载的结果，延迟单位为微秒
+     */
+    record Result(Histogram latencies, Map<Integer, Long> statusCounts, long failures, long dropped,
+                  long elapsedNanos) {
+
+        long completed() {
+            return latencies.getTotalCount();
+        }
+
+        double throughput() {
+            return completed() / (elapsedNanos / 1e9);
+        }
+
+        double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.outguess.server.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outguess.server.jpeg.TestJpegs;
+import com.outguess.server.service.OutguessEmbedder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * REST接口端到端负载测试
+ *
+ * 在随机端口启动完整应用，依次对各接口施加开环负载，输出吞吐量和延迟分布。
+ * 默认不随 mvn test 运行，使用 mvn -Ploadtest test 启动；参数通过系统属性调整：
+ *
+ *   load.endpoints    要测试的接口，逗号分隔（decode,upload,async,check）
+ *   load.rate         每个接口的目标请求速率（次/秒），默认20
+ *   load.warmup       预热秒数，默认5
+ *   load.duration     统计秒数，默认20
+ *   load.images       语料库图像数量，默认8
+ *   load.megapixels   图像大小（百万像素），默认1
+ *   load.max-inflight 在途请求上限，超出的请求记为丢弃，默认512
+ *   load.report-dir   报告目录，默认 target/load-test
+ *
+ * 语料库中每张图像都用服务自身的嵌入器嵌入了一条消息，解码请求走完整的提取和校验路径。
+ * 每个接口输出一份HdrHistogram百分位分布（.hgrm，单位毫秒），汇总写入 summary.txt
+ */
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "outguess.result-cache-max-bytes=0",
+    "logging.file.name=target/load-test/outguess-server.log"
+})
+public class RestApiLoadTest {
+
+    private static final String PASSWORD = "load-test";
+    private static final String BOUNDARY = "outguess-load-test-boundary";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OutguessEmbedder embedder;
+
+    private final List<byte[]> jsonBodies = new ArrayList<>();
+    private final List<byte[]> multipartBodies = new ArrayList<>();
+
+    @BeforeAll
+    public void generateCorpus() throws IOException {
+        int images = Integer.getInteger("load.images", 8);
+        double megapixels = Double.parseDouble(System.getProperty("load.megapixels", "1"));
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3));
+        int height = width * 3 / 4;
+
+        for (int i = 0; i < images; i++) {
+            byte[] cover = TestJpegs.encode(
+                TestJpegs.noiseImage(width, height, BufferedImage.TYPE_INT_RGB, i), 0.85f);
+            OutguessEmbedder.EmbedResult embedded = embedder.embedMessage(cover, "负载测试消息 #" + i, PASSWORD);
+            assertTrue(embedded.isSuccess(), embedded.getErrorMessage());
+            byte[] jpeg = embedded.getImageData();
+
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("imageData", Base64.getEncoder().encodeToString(jpeg));
+            request.put("password", PASSWORD);
+            request.put("filename", "load-" + i + ".jpg");
+            jsonBodies.add(objectMapper.writeValueAsBytes(request));
+            multipartBodies.add(multipart("load-" + i + ".jpg", jpeg));
+        }
+    }
+
+    @Test
+    public void runLoad() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "20"));
+        long warmup = TimeUnit.SECONDS.toNanos(Long.getLong("load.warmup", 5));
+        long duration = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 20));
+        int maxInFlight = Integer.getInteger("load.max-inflight", 512);
+        Path reportDir = Path.of(System.getProperty("load.report-dir", "target/load-test"));
+        Files.createDirectories(reportDir);
+
+        HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newCachedThreadPool())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        OpenLoopLoad load = new OpenLoopLoad(client, rate, warmup, duration, maxInFlight);
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("目标速率 %.1f req/s，预热 %ds，统计 %ds，语料 %d 张%n",
+            rate, TimeUnit.NANOSECONDS.toSeconds(warmup), TimeUnit.NANOSECONDS.toSeconds(duration),
+            jsonBodies.size()));
+        summary.append(String.format("%-8s %10s %10s %10s %10s %10s %10s %8s %8s  %s%n",
+            "endpoint", "req/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)",
+            "errors", "dropped", "status"));
+
+        for (String endpoint : System.getProperty("load.endpoints", "decode,upload,async,check").split(",")) {
+            endpoint = endpoint.trim();
+            OpenLoopLoad.Result result = load.run(requests(endpoint));
+
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(reportDir.resolve(endpoint + ".hgrm")), true, StandardCharsets.UTF_8)) {
+                result.latencies().outputPercentileDistribution(out, 1000.0);
+            }
+            summary.append(String.format("%-8s %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %8d %8d  %s%n",
+                endpoint, result.throughput(), result.percentileMillis(50), result.percentileMillis(90),
+                result.percentileMillis(99), result.percentileMillis(99.9),
+                result.latencies().getMaxValue() / 1000.0, result.failures(), result.dropped(),
+                result.statusCounts()));
+
+            assertTrue(result.completed() > 0, endpoint + " 没有完成任何请求");
+            assertEquals(0, result.failures(), endpoint + " 存在连接错误");
+        }
+
+        Files.writeString(reportDir.resolve("summary.txt"), summary, StandardCharsets.UTF_8);
+        System.out.print(summary);
+    }
+
+    private IntFunction<HttpRequest> requests(String endpoint) {
+        return switch (endpoint) {
+            case "decode" -> i -> json("/api/outguess/decode", i);
+            case "async" -> i -> json("/api/outguess/decode/async", i);
+            case "check" -> i -> json("/api/outguess/check", i);
+            case "upload" -> i -> HttpRequest.newBuilder(uri("/api/outguess/decode/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBodies.get(i % multipartBodies.size())))
+                .build();
+            default -> throw new IllegalArgumentException("未知的接口: " + endpoint);
+        };
+    }
+
+    private HttpRequest json(String path, int i) {
+        return HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBodies.get(i % jsonBodies.size())))
+            .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] multipart(String filename, byte[] jpeg) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(jpeg);
+        body.write(("\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"password\"\r\n\r\n"
+            + PASSWORD + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+}
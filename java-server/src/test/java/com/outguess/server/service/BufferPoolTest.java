@@ -0,0 +1,46 @@
+package com.outguess.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReusesArraysBySizeClass() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+
+        short[] first = pool.leaseShorts(5000);
+        assertEquals(8192, first.length);
+        pool.release(first);
+        assertEquals(8192L * Short.BYTES, pool.getPooledBytes());
+
+        // 同一分级内的不同请求长度复用同一个数组
+        assertSame(first, pool.leaseShorts(6000));
+        assertEquals(0, pool.getPooledBytes());
+
+        byte[] bytes = pool.leaseBytes(10);
+        assertEquals(4096, bytes.length);
+        pool.release(bytes);
+        assertSame(bytes, pool.leaseBytes(4096));
+
+        assertEquals(4, pool.getLeaseCount());
+        assertEquals(2, pool.getReuseCount());
+    }
+
+    @Test
+    public void testDiscardsBeyondBudget() {
+        BufferPool pool = new BufferPool(16 * 1024);
+
+        byte[] a = pool.leaseBytes(16 * 1024);
+        byte[] b = pool.leaseBytes(16 * 1024);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(16 * 1024, pool.getPooledBytes());
+        assertEquals(1, pool.getDiscardCount());
+
+        // 非分级尺寸的数组不入池
+        pool.release(new short[5000]);
+        assertEquals(2, pool.getDiscardCount());
+    }
+}
@@ -0,0 +1,112 @@
+package com.outguess.server.service;
+
+import com.outguess.server.jpeg.HeapCoefficientStore;
+import com.outguess.server.jpeg.MappedCoefficientStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoefficientStatisticsTest {
+
+    /**
+     * 类似真实图像的系数：值越大越少见，高频位置大多为0
+     */
+    private static short[] coefficients(int blocks, long seed) {
+        Random random = new Random(seed);
+        short[] data = new short[blocks * 64];
+        for (int i = 0; i < data.length; i++) {
+            int k = i % 64;
+            double scale = k == 0 ? 200 : 12.0 / (1 + k);
+            data[i] = (short) Math.round(random.nextGaussian() * scale);
+        }
+        return data;
+    }
+
+    @Test
+    public void testMatchesDirectComputation(@TempDir Path tempDir) throws Exception {
+        short[] data = coefficients(2000, 1);
+        CoefficientStatistics stats = CoefficientStatistics.compute(new HeapCoefficientStore(data), null);
+
+        Map<Short, Integer> histogram = new HashMap<>();
+        int usable = 0;
+        int even = 0;
+        for (int i = 0; i < data.length; i++) {
+            histogram.merge(data[i], 1, Integer::sum);
+            if (i % 64 != 0 && Math.abs(data[i]) >= 2) {
+                usable++;
+                even += (data[i] & 1) == 0 ? 1 : 0;
+            }
+        }
+        double entropy = 0;
+        for (int count : histogram.values()) {
+            double p = (double) count / data.length;
+            entropy -= p * Math.log(p) / Math.log(2);
+        }
+
+        assertEquals(data.length, stats.getTotal());
+        assertEquals(usable, stats.getUsable());
+        assertEquals(entropy, stats.getEntropy(), 1e-9);
+        assertEquals((double) even / usable, stats.getLsbZeroRatio(), 1e-12);
+        assertTrue(Double.isNaN(stats.getFrequencyLsbZeroRatio()[0]));
+
+        // 映射文件存储走逐块读取路径，结果应一致
+        try (MappedCoefficientStore mapped = MappedCoefficientStore.create(tempDir, data.length)) {
+            for (int offset = 0; offset < data.length; offset += 64) {
+                short[] block = new short[64];
+                System.arraycopy(data, offset, block, 0, 64);
+                mapped.putBlock(offset, block);
+            }
+            CoefficientStatistics fromMapped = CoefficientStatistics.compute(mapped, null);
+            assertEquals(stats.getEntropy(), fromMapped.getEntropy(), 1e-12);
+            assertEquals(stats.getChiSquare(), fromMapped.getChiSquare(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testParallelMergeMatchesSequential() {
+        // 超过两个任务的最小系数数才会拆分
+        short[] data = coefficients(40_000, 2);
+        HeapCoefficientStore store = new HeapCoefficientStore(data);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            CoefficientStatistics sequential = CoefficientStatistics.compute(store, null);
+            CoefficientStatistics parallel = CoefficientStatistics.compute(store, pool);
+            assertEquals(sequential.getTotal(), parallel.getTotal());
+            assertEquals(sequential.getUsable(), parallel.getUsable());
+            assertEquals(sequential.getEntropy(), parallel.getEntropy(), 1e-12);
+            assertEquals(sequential.getChiSquare(), parallel.getChiSquare(), 1e-9);
+            assertArrayEquals(sequential.getFrequencyNonZeroRatio(), parallel.getFrequencyNonZeroRatio());
+            assertArrayEquals(sequential.getFrequencyLsbZeroRatio(), parallel.getFrequencyLsbZeroRatio());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testChiSquareDetectsEqualizedPairs() {
+        short[] cover = coefficients(4000, 3);
+        short[] embedded = cover.clone();
+        Random random = new Random(4);
+        for (int i = 0; i < embedded.length; i++) {
+            // 用随机位替换所有可用系数的LSB
+            if (i % 64 != 0 && Math.abs(embedded[i]) >= 2) {
+                int replaced = (embedded[i] & ~1) | random.nextInt(2);
+                if (Math.abs(replaced) >= 2) {
+                    embedded[i] = (short) replaced;
+                }
+            }
+        }
+
+        CoefficientStatistics coverStats = CoefficientStatistics.compute(new HeapCoefficientStore(cover), null);
+        CoefficientStatistics embeddedStats = CoefficientStatistics.compute(new HeapCoefficientStore(embedded), null);
+        assertTrue(coverStats.getChiSquareProbability() < 0.01, "cover: " + coverStats.getChiSquareProbability());
+        assertTrue(embeddedStats.getChiSquareProbability() > 0.5, "embedded: " + embeddedStats.getChiSquareProbability());
+    }
+}
@@ -0,0 +1,42 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodeConcurrencyTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+        .withBean(OutguessConfig.class)
+        .withBean(DecodeMetrics.class, DecodeMetrics::local)
+        .withBean(DecodeConcurrency.class);
+
+    @Test
+    public void testAsyncDecodeRunsOnApplicationTaskExecutor() {
+        contextRunner
+            .withPropertyValues("spring.task.execution.thread-name-prefix=outguess-async-test-")
+            .run(context -> {
+                String thread = context.getBean(DecodeConcurrency.class)
+                    .supplyAsync(() -> Thread.currentThread().getName())
+                    .get(5, TimeUnit.SECONDS);
+                assertTrue(thread.startsWith("outguess-async-test-"), thread);
+            });
+    }
+
+    @Test
+    public void testAsyncDecodeRunsOnGivenExecutor() throws Exception {
+        DecodeConcurrency concurrency = new DecodeConcurrency(new OutguessConfig(), DecodeMetrics.local(),
+            new SimpleAsyncTaskExecutor("given-executor-"));
+
+        String thread = concurrency.supplyAsync(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        assertTrue(thread.startsWith("given-executor-"), thread);
+    }
+}
@@ -0,0 +1,44 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.TestJpegs;
+import com.outguess.server.model.OutguessResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodeMetricsTest {
+
+    @Test
+    public void testStageTimersAndResponseCounters() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DecodeMetrics metrics = new DecodeMetrics(registry);
+        OutguessDecoder decoder = new OutguessDecoder(new OutguessConfig(), metrics);
+
+        byte[] jpeg = TestJpegs.encode(TestJpegs.noiseImage(64, 64, BufferedImage.TYPE_INT_RGB, 3), 0.9f);
+        decoder.extractMessage(jpeg, null, false);
+
+        assertEquals(1, metrics.stageTimer(DecodeMetrics.Stage.PARSE).count());
+        // 每个尝试过的序列版本各记录一次
+        assertEquals(2, metrics.stageTimer(DecodeMetrics.Stage.PERMUTATION).count());
+        assertNotNull(registry.find("outguess.buffer.pool.bytes").gauge());
+
+        // 缓冲池计数器读取的是池自身的累计值
+        BufferPool pool = decoder.getBufferPool();
+        assertTrue(pool.getLeaseCount() > 0);
+        assertEquals(pool.getLeaseCount(), registry.get("outguess.buffer.pool.leases").functionCounter().count());
+        assertEquals(pool.getReuseCount(), registry.get("outguess.buffer.pool.reuses").functionCounter().count());
+        pool.release(new byte[3]); // 不是分级尺寸，直接丢弃
+        assertEquals(pool.getDiscardCount(), registry.get("outguess.buffer.pool.discards").functionCounter().count());
+        assertTrue(pool.getDiscardCount() > 0);
+
+        metrics.countResponse(OutguessResponse.success("ok", 2, 1, true));
+        metrics.countResponse(OutguessResponse.error("WRONG_PASSWORD", "密码错误"));
+        metrics.countResponse(OutguessResponse.error("WRONG_PASSWORD", "密码错误"));
+        assertEquals(1, registry.get("outguess.responses").tag("errorCode", "none").counter().count());
+        assertEquals(2, registry.get("outguess.responses").tag("errorCode", "WRONG_PASSWORD").counter().count());
+    }
+}
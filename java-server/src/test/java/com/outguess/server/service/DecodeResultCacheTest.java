@@ -0,0 +1,81 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodeResultCacheTest {
+
+    private static OutguessDecoder.DecodeResult success(String message) {
+        return new OutguessDecoder.DecodeResult(true, message, message.length(), true, null, 5);
+    }
+
+    @Test
+    public void testKeyedByContentAndPassword() {
+        DecodeResultCache cache = new DecodeResultCache(1024 * 1024, 1_000_000_000L, System::nanoTime);
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3};
+
+        DecodeResultCache.Key key = cache.key(image, "secret");
+        assertNull(cache.get(key));
+        cache.put(key, success("hello"));
+
+        assertEquals("hello", cache.get(cache.key(image.clone(), "secret")).getMessage());
+        assertNull(cache.get(cache.key(image, "other")));
+        assertNull(cache.get(cache.key(image, null)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.25, cache.getHitRatio(), 1e-9);
+
+        // 失败结果不缓存
+        DecodeResultCache.Key failed = cache.key(new byte[] {9}, null);
+        cache.put(failed, new OutguessDecoder.DecodeResult(false, null, 0, false, "无效的JPEG文件", 1));
+        assertNull(cache.get(failed));
+    }
+
+    @Test
+    public void testHitAndMissMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DecodeResultCache cache = new DecodeResultCache(new OutguessConfig(), new DecodeMetrics(registry));
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3};
+
+        DecodeResultCache.Key key = cache.key(image, null);
+        assertNull(cache.get(key));
+        cache.put(key, success("hello"));
+        cache.get(key);
+        cache.get(key);
+
+        assertEquals(2, registry.get("outguess.result.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("outguess.result.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(2.0 / 3, registry.get("outguess.result.cache.hit.ratio").gauge().value(), 1e-9);
+        assertEquals(1, registry.get("outguess.result.cache.size").gauge().value());
+        assertEquals(cache.getCachedBytes(), (long) registry.get("outguess.result.cache.bytes").gauge().value());
+        assertTrue(cache.getCachedBytes() > 0);
+    }
+
+    @Test
+    public void testTtlAndBudgetEviction() {
+        AtomicLong now = new AtomicLong();
+        DecodeResultCache cache = new DecodeResultCache(600, 100, now::get);
+
+        DecodeResultCache.Key a = cache.key(new byte[] {1}, null);
+        DecodeResultCache.Key b = cache.key(new byte[] {2}, null);
+        DecodeResultCache.Key c = cache.key(new byte[] {3}, null);
+        cache.put(a, success("a"));
+        cache.put(b, success("b"));
+        assertNotNull(cache.get(a));
+
+        // 预算只够两个条目，b最久未访问被淘汰
+        cache.put(c, success("c"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get(b));
+
+        now.set(100);
+        assertNull(cache.get(a));
+        assertNull(cache.get(c));
+        assertEquals(0, cache.getCachedBytes());
+    }
+}
@@ -0,0 +1,48 @@
+package com.outguess.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddingSequenceCacheTest {
+
+    @Test
+    public void testMatchesCollectionsShuffle() {
+        int total = 64 * 37;
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            if (i % 64 != 0) {
+                expected.add(i);
+            }
+        }
+        Collections.shuffle(expected, new Random("outguess_seed_v2".hashCode()));
+
+        int[] actual = EmbeddingSequenceCache.generate(total, "outguess_seed_v2");
+        assertEquals(expected.size(), actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(expected.get(i).intValue(), actual[i]);
+        }
+    }
+
+    @Test
+    public void testHitMissAndEviction() {
+        // 预算只够容纳一个 64*10 系数的序列
+        EmbeddingSequenceCache cache = new EmbeddingSequenceCache(630 * Integer.BYTES);
+
+        int[] first = cache.get(640, "seed");
+        assertSame(first, cache.get(640, "seed"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.get(640, "other");
+        assertEquals(1, cache.size());
+        assertNotSame(first, cache.get(640, "seed"));
+        assertEquals(3, cache.getMissCount());
+        assertTrue(cache.getCachedBytes() <= cache.getMaxBytes());
+    }
+}
@@ -0,0 +1,42 @@
+package com.outguess.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeistelEmbeddingSequenceTest {
+
+    @Test
+    public void testIsPermutationOfAcPositions() {
+        for (int total : new int[] {64, 640, 64 * 1000 + 64 * 7}) {
+            FeistelEmbeddingSequence sequence = new FeistelEmbeddingSequence(total, "outguess_seed_v2");
+            assertEquals(total - total / 64, sequence.length());
+
+            BitSet seen = new BitSet(total);
+            for (int k = 0; k < sequence.length(); k++) {
+                int index = sequence.indexAt(k);
+                assertTrue(index > 0 && index < total);
+                assertNotEquals(0, index % 64, "不应包含DC位置");
+                assertFalse(seen.get(index), "位置重复: " + index);
+                seen.set(index);
+            }
+        }
+    }
+
+    @Test
+    public void testKnownAnswersSharedWithNativeImplementation() {
+        // 与C++ outguess_embedding_sequence_index_v2 的输出一致
+        assertSequenceStartsWith(64 * 1000, 7676, 31238, 29729, 57888, 6148);
+        assertSequenceStartsWith(640, 36, 595, 268, 587, 623);
+        assertSequenceStartsWith(64 * 12345, 297611, 530742, 614076, 518107, 409315);
+    }
+
+    private static void assertSequenceStartsWith(int total, int... expected) {
+        FeistelEmbeddingSequence sequence = new FeistelEmbeddingSequence(total, "outguess_seed_v2");
+        for (int k = 0; k < expected.length; k++) {
+            assertEquals(expected[k], sequence.indexAt(k));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.outguess.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCipherTest {
+
+    @Test
+    public void testRoundTripAndAuthentication() throws Exception {
+        MessageCipher cipher = new MessageCipher(MessageCipher.MIN_ITERATIONS, 16);
+        byte[] plaintext = "隐藏的消息".getBytes(StandardCharsets.UTF_8);
+
+        byte[] encrypted = cipher.encrypt(plaintext, "secret");
+        assertEquals(plaintext.length + MessageCipher.OVERHEAD, encrypted.length);
+        assertTrue(MessageCipher.isEncrypted(encrypted, encrypted.length));
+        assertArrayEquals(plaintext, cipher.decrypt(encrypted, encrypted.length, "secret"));
+
+        assertThrows(AEADBadTagException.class, () -> cipher.decrypt(encrypted, encrypted.length, "wrong"));
+
+        // 头部参与认证：改动迭代次数以外的任何字节都会导致认证失败
+        byte[] tampered = encrypted.clone();
+        tampered[MessageCipher.HEADER_SIZE - 1] ^= 1;
+        assertThrows(AEADBadTagException.class, () -> cipher.decrypt(tampered, tampered.length, "secret"));
+
+        byte[] expensive = encrypted.clone();
+        expensive[5] = 0x7F; // 迭代次数超出上限，不做派生直接拒绝
+        assertThrows(GeneralSecurityException.class, () -> cipher.decrypt(expensive, expensive.length, "secret"));
+        assertFalse(MessageCipher.isEncrypted(plaintext, plaintext.length));
+    }
+
+    @Test
+    public void testRejectsIterationsFarAboveConfiguredValue() throws Exception {
+        MessageCipher reader = new MessageCipher(MessageCipher.MIN_ITERATIONS, 16);
+        byte[] plaintext = "消息".getBytes(StandardCharsets.UTF_8);
+
+        byte[] doubled = new MessageCipher(MessageCipher.MIN_ITERATIONS * 2, 16).encrypt(plaintext, "secret");
+        assertArrayEquals(plaintext, reader.decrypt(doubled, doubled.length, "secret"));
+
+        byte[] tripled = new MessageCipher(MessageCipher.MIN_ITERATIONS * 3, 16).encrypt(plaintext, "secret");
+        GeneralSecurityException e = assertThrows(GeneralSecurityException.class,
+            () -> reader.decrypt(tripled, tripled.length, "secret"));
+        assertEquals("KDF迭代次数超出范围: " + MessageCipher.MIN_ITERATIONS * 3, e.getMessage());
+        assertEquals(1, reader.getDerivationCount());
+    }
+
+    @Test
+    public void testDerivedKeysAreCachedPerPasswordAndSalt() throws Exception {
+        MessageCipher cipher = new MessageCipher(MessageCipher.MIN_ITERATIONS, 2);
+        byte[][] messages = new byte[100][];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = cipher.encrypt(("消息" + i).getBytes(StandardCharsets.UTF_8), "shared");
+        }
+        // 同一密码复用同一个盐，加密和解密全程只派生一次密钥
+        MessageCipher reader = new MessageCipher(MessageCipher.MIN_ITERATIONS, 2);
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals("消息" + i, new String(reader.decrypt(messages[i], messages[i].length, "shared"), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, cipher.getDerivationCount());
+        assertEquals(1, reader.getDerivationCount());
+        assertEquals(99, reader.getHitCount());
+
+        cipher.encrypt(new byte[1], "a");
+        cipher.encrypt(new byte[1], "b");
+        assertEquals(2, cipher.size());
+    }
+}
@@ -0,0 +1,35 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.TestJpegs;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutguessDecoderTest {
+
+    @Test
+    public void testSampledDetectionAgreesWithFullDecode() throws Exception {
+        byte[] jpeg = TestJpegs.encode(TestJpegs.noiseImage(512, 384, BufferedImage.TYPE_INT_RGB, 8), 0.9f);
+
+        OutguessConfig fullConfig = new OutguessConfig();
+        fullConfig.setCheckSampleBlocks(0);
+        OutguessDecoder.DetectionResult full = new OutguessDecoder(fullConfig).detectHiddenData(jpeg);
+
+        OutguessConfig sampledConfig = new OutguessConfig();
+        sampledConfig.setCheckSampleBlocks(256);
+        OutguessDecoder.DetectionResult sampled = new OutguessDecoder(sampledConfig).detectHiddenData(jpeg);
+
+        assertEquals(0, full.getSampledBlocks());
+        assertTrue(sampled.getSampledBlocks() >= 256);
+        assertEquals(full.hasHiddenData(), sampled.hasHiddenData());
+        assertEquals(sampled.getSampledBlocks() * 64L, sampled.getStatistics().getTotal());
+        assertTrue(sampled.getConfidence() > 0.5 && sampled.getConfidence() <= 1.0);
+
+        OutguessDecoder.DetectionResult invalid = new OutguessDecoder(sampledConfig).detectHiddenData("not a jpeg".getBytes());
+        assertFalse(invalid.hasHiddenData());
+        assertEquals(0.0, invalid.getConfidence());
+    }
+}
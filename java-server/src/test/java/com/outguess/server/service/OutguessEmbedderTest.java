@@ -0,0 +1,136 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.jpeg.CoefficientStore;
+import com.outguess.server.jpeg.JpegImage;
+import com.outguess.server.jpeg.JpegParser;
+import com.outguess.server.jpeg.TestJpegs;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutguessEmbedderTest {
+
+    @Test
+    public void testEmbeddedMessageDecodesWithBothSequenceVersions() throws Exception {
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(256, 192, BufferedImage.TYPE_INT_RGB, 3), 0.9f);
+
+        for (int version : List.of(EmbeddingSequence.VERSION_FEISTEL, EmbeddingSequence.VERSION_SHUFFLE)) {
+            OutguessConfig config = new OutguessConfig();
+            config.setEmbedSequenceVersion(version);
+            OutguessDecoder decoder = new OutguessDecoder(config);
+            OutguessEmbedder embedder = new OutguessEmbedder(decoder, config);
+
+            OutguessEmbedder.EmbedResult plain = embedder.embedMessage(cover, "隐藏的消息 v" + version, null);
+            assertTrue(plain.isSuccess(), plain.getErrorMessage());
+            assertTrue(plain.getChangedCoefficients() > 0);
+            assertEquals("隐藏的消息 v" + version, decoder.extractMessage(plain.getImageData(), null, false).getMessage());
+
+            OutguessEmbedder.EmbedResult secret = embedder.embedMessage(cover, "secret", "pass");
+            assertTrue(secret.isSuccess(), secret.getErrorMessage());
+            assertEquals("secret", decoder.extractMessage(secret.getImageData(), "pass", false).getMessage());
+        }
+    }
+
+    @Test
+    public void testShuffleSequenceRoundTripWithOptimizedHuffmanTables() throws Exception {
+        // 最优Huffman表只含图像中出现过的符号，嵌入后须能用原表重新编码；两种序列都不含DC位置，DC保持不变
+        byte[] cover = TestJpegs.encodeOptimized(TestJpegs.noiseImage(256, 192, BufferedImage.TYPE_INT_RGB, 8), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        config.setEmbedSequenceVersion(EmbeddingSequence.VERSION_SHUFFLE);
+        OutguessDecoder decoder = new OutguessDecoder(config);
+        OutguessEmbedder embedder = new OutguessEmbedder(decoder, config);
+
+        OutguessEmbedder.EmbedResult result = embedder.embedMessage(cover, "x".repeat(500), null);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals("x".repeat(500), decoder.extractMessage(result.getImageData(), null, false).getMessage());
+
+        try (JpegImage before = JpegParser.parse(cover); JpegImage after = JpegParser.parse(result.getImageData())) {
+            CoefficientStore original = before.getCoefficients();
+            CoefficientStore embedded = after.getCoefficients();
+            for (int i = 0; i < original.size(); i += JpegImage.BLOCK_SIZE) {
+                assertEquals(original.get(i), embedded.get(i), "DC系数不一致: " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testPasswordProtectedMessages() throws Exception {
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(256, 192, BufferedImage.TYPE_INT_RGB, 4), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        config.setKdfIterations(10_000);
+        OutguessDecoder decoder = new OutguessDecoder(config);
+        OutguessEmbedder embedder = new OutguessEmbedder(decoder, config);
+
+        byte[] stego = embedder.embedMessage(cover, "secret", "pass").getImageData();
+        OutguessDecoder.DecodeResult wrong = decoder.extractMessage(stego, "other", false);
+        assertFalse(wrong.isSuccess());
+        assertEquals("解密失败 - 密码错误？", wrong.getErrorMessage());
+
+        // 旧版异或载荷仍可解密
+        OutguessConfig legacyConfig = new OutguessConfig();
+        legacyConfig.setEmbedCipher("legacy-xor");
+        byte[] legacy = new OutguessEmbedder(decoder, legacyConfig).embedMessage(cover, "old secret", "pass").getImageData();
+        assertEquals("old secret", decoder.extractMessage(legacy, "pass", false).getMessage());
+    }
+
+    @Test
+    public void testBinaryPayloadSurvivesWithoutStringConversion() throws Exception {
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(256, 192, BufferedImage.TYPE_INT_RGB, 6), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        OutguessDecoder decoder = new OutguessDecoder(config);
+        OutguessEmbedder embedder = new OutguessEmbedder(decoder, config);
+
+        // 不是合法的UTF-8，经过String会被替换为U+FFFD
+        byte[] binary = {(byte) 0xFF, (byte) 0xFE, 0x00, (byte) 0xC3, 0x28, (byte) 0x80, 0x7F};
+        byte[] stego = embedder.embedPayload(cover, binary, null).getImageData();
+
+        OutguessDecoder.DecodeResult result = decoder.extractMessage(stego, null, false);
+        assertTrue(result.isSuccess());
+        assertArrayEquals(binary, result.getPayload());
+        assertEquals(binary.length, result.getPayloadSize());
+    }
+
+    @Test
+    public void testRejectsMessageLargerThanCapacity() throws Exception {
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(32, 32, BufferedImage.TYPE_BYTE_GRAY, 5), 0.9f);
+        OutguessConfig config = new OutguessConfig();
+        OutguessEmbedder embedder = new OutguessEmbedder(new OutguessDecoder(config), config);
+
+        OutguessEmbedder.EmbedResult result = embedder.embedMessage(cover, "x".repeat(4096), null);
+        assertFalse(result.isSuccess());
+        assertEquals("CAPACITY_EXCEEDED", result.getErrorCode());
+
+        assertEquals("INVALID_IMAGE_DATA", embedder.embedMessage("not a jpeg".getBytes(), "x", null).getErrorCode());
+    }
+
+    @Test
+    public void testCapacityCountMatchesFullParseAndIsExactAtLowestResistance() throws Exception {
+        byte[] cover = TestJpegs.encode(TestJpegs.noiseImage(200, 120, BufferedImage.TYPE_INT_RGB, 9), 0.8f);
+        OutguessConfig config = new OutguessConfig();
+        OutguessEmbedder embedder = new OutguessEmbedder(new OutguessDecoder(config), config);
+
+        long usable = 0;
+        try (JpegImage jpeg = JpegParser.parse(cover)) {
+            CoefficientStore coefficients = jpeg.getCoefficients();
+            for (int i = 0; i < coefficients.size(); i++) {
+                if (i % JpegImage.BLOCK_SIZE != 0 && Math.abs(coefficients.get(i)) >= 2) {
+                    usable++;
+                }
+            }
+        }
+
+        OutguessEmbedder.CapacityResult capacity = embedder.estimateCapacity(cover, 5, 85);
+        assertEquals(usable, capacity.getUsableCoefficients());
+        assertEquals((int) (usable * 0.68 * 0.85) / 8 - 8, capacity.getMaxMessageSize());
+
+        // 服务端嵌入不预留抗压缩余量：等级1、质量100时的容量恰好可以嵌满
+        int exact = embedder.estimateCapacity(cover, 1, 100).getMaxMessageSize();
+        assertTrue(embedder.embedMessage(cover, "x".repeat(exact), null).isSuccess());
+        assertEquals("CAPACITY_EXCEEDED", embedder.embedMessage(cover, "x".repeat(exact + 1), null).getErrorCode());
+        assertEquals(0, OutguessEmbedder.maxMessageSize(10, 10, 50));
+    }
+}
@@ -0,0 +1,86 @@
+package com.outguess.server.service;
+
+import com.outguess.server.config.OutguessConfig;
+import com.outguess.server.model.BatchDecodeResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OutguessServiceBatchTest {
+
+    @Test
+    public void testArchiveItemsFailIndividually() throws Exception {
+        OutguessConfig config = new OutguessConfig();
+        config.setBatchMaxItems(2);
+        OutguessService service = new OutguessService();
+        ReflectionTestUtils.setField(service, "decoder", new OutguessDecoder(config));
+        ReflectionTestUtils.setField(service, "config", config);
+        ReflectionTestUtils.setField(service, "resultCache", new DecodeResultCache(config));
+        ReflectionTestUtils.setField(service, "concurrency", new DecodeConcurrency(config));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.putNextEntry(new ZipEntry("dir/a.jpg"));
+            zip.write(new byte[] {(byte) 0xFF, (byte) 0xD8, 1, 2, 3});
+            zip.putNextEntry(new ZipEntry("b.jpg"));
+            zip.putNextEntry(new ZipEntry("c.jpg"));
+            zip.write(new byte[] {1});
+        }
+
+        List<BatchDecodeResult> results = new ArrayList<>();
+        int submitted = service.decodeBatchArchive(
+            new ByteArrayInputStream(archive.toByteArray()), null, false, results::add);
+
+        // 前两个条目各自失败，第三个条目触发数量限制
+        assertEquals(2, submitted);
+        assertEquals(3, results.size());
+        results.sort(Comparator.comparingInt(BatchDecodeResult::getIndex));
+        assertEquals("dir/a.jpg", results.get(0).getFilename());
+        assertEquals("DECODE_FAILED", results.get(0).getResponse().getErrorCode());
+        assertEquals("b.jpg", results.get(1).getFilename());
+        assertEquals("INVALID_REQUEST", results.get(1).getResponse().getErrorCode());
+        assertEquals("c.jpg", results.get(2).getFilename());
+        assertEquals("BATCH_TOO_LARGE", results.get(2).getResponse().getErrorCode());
+    }
+
+    @Test
+    public void testWorkerErrorStillProducesResult() throws Exception {
+        OutguessConfig config = new OutguessConfig();
+        OutguessDecoder decoder = mock(OutguessDecoder.class);
+        when(decoder.extractMessage(any(byte[].class), any(), anyBoolean())).thenThrow(new OutOfMemoryError("测试"));
+        OutguessService service = new OutguessService();
+        ReflectionTestUtils.setField(service, "decoder", decoder);
+        ReflectionTestUtils.setField(service, "config", config);
+        ReflectionTestUtils.setField(service, "resultCache", new DecodeResultCache(config));
+        ReflectionTestUtils.setField(service, "concurrency", new DecodeConcurrency(config));
+
+        List<OutguessService.BatchItem> items = List.of(
+            new OutguessService.BatchItem("a.jpg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1}),
+            new OutguessService.BatchItem("b.jpg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 2}));
+
+        // Error逃出decodeMessage时不能让批量解码一直等待结果
+        List<BatchDecodeResult> results = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> service.decodeBatch(items.iterator(), null, false, results::add));
+
+        assertEquals(2, results.size());
+        for (BatchDecodeResult result : results) {
+            assertEquals("INTERNAL_ERROR", result.getResponse().getErrorCode());
+        }
+    }
+}